@@ -0,0 +1,83 @@
+package com.example.candidate_registry.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Synthetic upload files for the benchmarks. Output is deterministic for a given
+ * kind and row count, so runs are comparable.
+ */
+public final class CsvFixtures {
+
+    public enum Kind {
+        /** valid rows, unique external_ref, short notes */
+        CLEAN,
+        /** about half the rows fail validation (missing name, bad or out-of-range age, overlong name) */
+        ERROR_HEAVY,
+        /** external_ref drawn from a quarter of the row count, so most rows are DUP_IN_FILE */
+        DUPLICATE_HEAVY,
+        /** valid rows with ~1.5KB quoted notes containing commas, quotes and line breaks */
+        LONG_NOTES
+    }
+
+    static final String HEADER = "external_ref,name,age,nationality,origin,notes\n";
+
+    private static final String[] NATIONALITIES = { "日本", "Japan", "Canada", "France", "Brazil", "Viet Nam" };
+
+    private static final String[] ORIGINS = { "東京都", "大阪府", "Toronto", "Lyon", "São Paulo", "Hanoi" };
+
+    private static final String[] NAMES = { "山田　太郎", "田中 花子", "Jane Smith", "Jean Dupont", "Nguyễn Văn An" };
+
+    private CsvFixtures() {
+    }
+
+    public static byte[] generate(Kind kind, int rows) {
+        return generate(kind, rows, 0);
+    }
+
+    /**
+     * The same file with every valid age moved by {@code revision} years (modulo the age
+     * range), so two revisions differ in exactly one column per row.
+     */
+    public static byte[] generate(Kind kind, int rows, int revision) {
+        Random rnd = new Random(42);
+        StringBuilder sb = new StringBuilder(HEADER);
+        String longNotes = kind == Kind.LONG_NOTES ? longNotes(rnd) : null;
+        for (int i = 1; i <= rows; i++) {
+            int ref = kind == Kind.DUPLICATE_HEAVY ? 1 + rnd.nextInt(Math.max(1, rows / 4)) : i;
+            String name = NAMES[rnd.nextInt(NAMES.length)] + " " + i;
+            String age = String.valueOf(18 + (rnd.nextInt(50) + revision) % 50);
+            if (kind == Kind.ERROR_HEAVY && i % 2 == 0) {
+                switch (rnd.nextInt(5)) {
+                    case 0 -> name = "";
+                    case 1 -> age = "abc";
+                    case 2 -> age = "31.5";
+                    case 3 -> age = "250";
+                    default -> name = "x".repeat(101);
+                }
+            }
+            sb.append("CND-").append(ref).append(',')
+                    .append(name).append(',')
+                    .append(age).append(',')
+                    .append(NATIONALITIES[rnd.nextInt(NATIONALITIES.length)]).append(',')
+                    .append(ORIGINS[rnd.nextInt(ORIGINS.length)]).append(',');
+            if (longNotes != null)
+                sb.append(longNotes);
+            else
+                sb.append("note ").append(i);
+            sb.append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String longNotes(Random rnd) {
+        StringBuilder notes = new StringBuilder("\"");
+        while (notes.length() < 1500) {
+            notes.append("経歴: ").append(rnd.nextInt(1000)).append(" 年, \"\"remote\"\" ok");
+            if (rnd.nextInt(4) == 0)
+                notes.append('\n');
+            notes.append(' ');
+        }
+        return notes.append('"').toString();
+    }
+}
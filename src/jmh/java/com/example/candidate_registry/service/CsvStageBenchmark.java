@@ -0,0 +1,127 @@
+package com.example.candidate_registry.service;
+
+import com.example.candidate_registry.entity.Candidate;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The upload and export stages in isolation, single-threaded and without a database:
+ * parsing, normalization + validation, the duplicate count, spilling validated rows,
+ * and the export serialization ({@link CandidateCsvWriter#writeAll}). Each invocation
+ * processes a whole file, and scores are per row (rows/s; {@code gc.alloc.rate.norm} is bytes per row).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OperationsPerInvocation(CsvStageBenchmark.ROWS)
+public class CsvStageBenchmark {
+
+    static final int ROWS = 10_000;
+
+    // same settings as CandidateService.parseAndSpill
+    private static final CSVFormat UPLOAD_FORMAT = CSVFormat.DEFAULT
+            .withFirstRecordAsHeader()
+            .withTrim(false)
+            .withIgnoreEmptyLines(false)
+            .withIgnoreSurroundingSpaces(false)
+            .withAllowMissingColumnNames(false);
+
+    @Param({ "CLEAN", "ERROR_HEAVY", "DUPLICATE_HEAVY", "LONG_NOTES" })
+    public CsvFixtures.Kind kind;
+
+    private byte[] csv;
+
+    private List<CSVRecord> records;
+
+    private CsvRowValidator validator;
+
+    private List<UploadRow> validated;
+
+    private List<Candidate> candidates;
+
+    @Setup
+    public void setup() throws IOException {
+        csv = CsvFixtures.generate(kind, ROWS);
+        records = parse(csv);
+        try (CSVParser parser = UPLOAD_FORMAT.parse(reader(csv))) {
+            validator = CandidateCsvSchema.CANDIDATE.compile(parser.getHeaderNames());
+        }
+        validated = new ArrayList<>(records.size());
+        candidates = new ArrayList<>(records.size());
+        for (CSVRecord r : records) {
+            UploadRow row = validator.read(r);
+            validated.add(row);
+            Candidate c = new Candidate();
+            c.setExternalRef(row.externalRef);
+            c.setName(row.name);
+            c.setAge(row.age);
+            c.setNationality(row.nationality);
+            c.setOrigin(row.origin);
+            c.setNotes(row.notes);
+            candidates.add(c);
+        }
+    }
+
+    @Benchmark
+    public void parse(Blackhole bh) throws IOException {
+        try (CSVParser parser = UPLOAD_FORMAT.parse(reader(csv))) {
+            for (CSVRecord r : parser)
+                bh.consume(r);
+        }
+    }
+
+    @Benchmark
+    public void validate(Blackhole bh) {
+        for (CSVRecord r : records)
+            bh.consume(validator.read(r));
+    }
+
+    @Benchmark
+    public Map<String, Integer> duplicateCount() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (UploadRow row : validated) {
+            if (row.externalRef != null)
+                counts.merge(row.externalRef, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    @Benchmark
+    public void spill() throws IOException {
+        try (CSVPrinter printer = CSVFormat.DEFAULT.print(
+                new BufferedWriter(new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8)))) {
+            for (UploadRow row : validated)
+                row.spill(printer);
+        }
+    }
+
+    @Benchmark
+    public void serializeExport() throws IOException {
+        CandidateCsvWriter.writeAll(candidates, OutputStream.nullOutputStream());
+    }
+
+    private static List<CSVRecord> parse(byte[] csv) throws IOException {
+        try (CSVParser parser = UPLOAD_FORMAT.parse(reader(csv))) {
+            return parser.getRecords();
+        }
+    }
+
+    private static Reader reader(byte[] csv) {
+        return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(csv), StandardCharsets.UTF_8));
+    }
+}
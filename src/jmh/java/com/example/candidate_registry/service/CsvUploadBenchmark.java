@@ -0,0 +1,104 @@
+package com.example.candidate_registry.service;
+
+import com.example.candidate_registry.CandidateRegistryApplication;
+import com.example.candidate_registry.dto.CsvUploadResult;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CandidateService#uploadCsv(java.io.InputStream, long, String, boolean, UploadProgress)} end to end
+ * against embedded H2 in MySQL mode: parse, validation, DUP_IN_FILE, lookups, batched
+ * inserts or updates and the error report. {@code table=EMPTY} measures the insert path.
+ * {@code table=UNCHANGED} re-uploads the same file over its own rows: the content_hash
+ * matches, so no row is written (the unchanged-skip path). {@code table=CHANGED}
+ * alternates between two revisions of the file that differ in the age of every row, so
+ * each valid row is updated (the update path). Scores are per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@OperationsPerInvocation(CsvUploadBenchmark.ROWS)
+public class CsvUploadBenchmark {
+
+    static final int ROWS = 10_000;
+
+    @Param({ "CLEAN", "ERROR_HEAVY", "DUPLICATE_HEAVY", "LONG_NOTES" })
+    public CsvFixtures.Kind kind;
+
+    @Param({ "EMPTY", "UNCHANGED", "CHANGED" })
+    public String table;
+
+    private byte[] csv;
+
+    // CHANGED only: the other revision, swapped with csv before each invocation
+    private byte[] next;
+
+    private Path reportDir;
+
+    private ConfigurableApplicationContext context;
+
+    private CandidateService service;
+
+    private JdbcTemplate jdbc;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        csv = CsvFixtures.generate(kind, ROWS);
+        if (table.equals("CHANGED"))
+            next = CsvFixtures.generate(kind, ROWS, 1);
+        reportDir = Files.createTempDirectory("bench-reports");
+        context = new SpringApplicationBuilder(CandidateRegistryApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:bench;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "app.upload.max-rows=" + ROWS,
+                        "app.upload.max-size-bytes=" + 64 * 1024 * 1024,
+                        "app.error.report.dir=" + reportDir,
+                        "app.error.report.max-total-bytes=" + 16 * 1024 * 1024,
+                        "logging.level.root=WARN")
+                .run();
+        service = context.getBean(CandidateService.class);
+        jdbc = context.getBean(JdbcTemplate.class);
+        if (!table.equals("EMPTY"))
+            upload();
+    }
+
+    @Setup(Level.Invocation)
+    public void resetTable() {
+        // an upload takes far longer than this setup, so invocation-level setup is fine here
+        if (table.equals("EMPTY")) {
+            jdbc.update("DELETE FROM candidate");
+        } else if (table.equals("CHANGED")) {
+            byte[] uploaded = csv;
+            csv = next;
+            next = uploaded;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(reportDir);
+    }
+
+    @Benchmark
+    public CsvUploadResult upload() throws IOException {
+        // forced, so repeated invocations import instead of replaying the first result
+        return service.uploadCsv(new ByteArrayInputStream(csv), csv.length, null, true, new UploadProgress());
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.candidate_registry.config;
+
+import com.example.candidate_registry.service.CandidateMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Takes a permit from a fair semaphore for every connection checked out and returns it
+ * when the connection is closed. Callers beyond the limit queue here for at most the
+ * configured wait and are then refused with {@link SQLTransientConnectionException}, the
+ * same failure a pool timeout gives.
+ */
+public class BulkheadDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private final Semaphore permits;
+
+    private final int maxConcurrent;
+
+    private final long maxWaitNanos;
+
+    private final ObjectProvider<CandidateMetrics> metrics;
+
+    public BulkheadDataSource(DataSource target, int maxConcurrent, long maxWaitMillis,
+            ObjectProvider<CandidateMetrics> metrics) {
+        super(target);
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.metrics = metrics;
+    }
+
+    /** Permits currently not in use. */
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return guard(super.getConnection());
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return guard(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    private void acquire() throws SQLException {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("interrupted while waiting for a database permit", ex);
+        }
+        long waited = System.nanoTime() - start;
+        metrics.ifAvailable(m -> m.recordDbPermitWait(waited, acquired));
+        if (!acquired)
+            throw new SQLTransientConnectionException(
+                    "database bulkhead full: " + maxConcurrent + " connections in use");
+    }
+
+    // replaces the target as the bean, so it also takes over closing the pool on shutdown
+    @Override
+    public void close() throws Exception {
+        if (getTargetDataSource() instanceof AutoCloseable target)
+            target.close();
+    }
+
+    // the permit goes back on the first close; everything else reaches the connection as is
+    private Connection guard(Connection con) {
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "close":
+                            if (!closed.compareAndSet(false, true))
+                                return null;
+                            try {
+                                con.close();
+                            } finally {
+                                permits.release();
+                            }
+                            return null;
+                        default:
+                            try {
+                                return method.invoke(con, args);
+                            } catch (InvocationTargetException ex) {
+                                throw ex.getTargetException();
+                            }
+                    }
+                });
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.candidate_registry.config;
+
+import com.example.candidate_registry.service.CandidateMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * Database bulkhead, on when {@code app.db.bulkhead.enabled} is set (by default it follows
+ * {@code spring.threads.virtual.enabled}). With virtual threads every request and job can
+ * reach the repositories at once; the application's DataSource is then wrapped in a
+ * {@link BulkheadDataSource}, so at most {@code app.db.bulkhead.max-concurrent} connections
+ * are in use and the rest wait a bounded time instead of queueing on the pool.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "app.db.bulkhead.enabled", havingValue = "true")
+public class DbBulkheadConfig {
+
+    @Bean
+    static BeanPostProcessor dbBulkheadPostProcessor(Environment env, ObjectProvider<CandidateMetrics> metrics) {
+        int maxConcurrent = env.getProperty("app.db.bulkhead.max-concurrent", Integer.class, 10);
+        long maxWaitMillis = env.getProperty("app.db.bulkhead.max-wait-ms", Long.class, 2000L);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // only the DataSource the repositories use; with replica routing its parts stay unwrapped
+                if (bean instanceof DataSource ds && "dataSource".equals(beanName))
+                    return new BulkheadDataSource(ds, maxConcurrent, maxWaitMillis, metrics);
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.candidate_registry.config;
+
+import com.example.candidate_registry.service.CandidatesChangedEvent;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connections for read-only work: taken round-robin from the replica pools, except for a
+ * short window after an upload has committed changes, during which they come from the
+ * primary so that a client reading right after its upload sees it.
+ */
+public class ReplicaDataSource extends AbstractDataSource implements Closeable {
+
+    private final DataSource primary;
+
+    private final List<HikariDataSource> replicas;
+
+    private final long readYourWritesNanos;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private volatile long primaryUntilNanos = System.nanoTime();
+
+    public ReplicaDataSource(DataSource primary, List<HikariDataSource> replicas, Duration readYourWrites) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.readYourWritesNanos = readYourWrites.toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return target().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return target().getConnection(username, password);
+    }
+
+    // the window is global: any upload sends all reads to the primary for a while. Opened
+    // before the caches are invalidated and the registry version moves on, so nothing
+    // reloaded or stamped with the new version is read from a lagging replica
+    @Order(-100)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCandidatesChanged(CandidatesChangedEvent event) {
+        primaryUntilNanos = System.nanoTime() + readYourWritesNanos;
+    }
+
+    /** Whether reads currently go to the primary because of a recent upload. */
+    public boolean inReadYourWritesWindow() {
+        return System.nanoTime() - primaryUntilNanos < 0;
+    }
+
+    private DataSource target() {
+        if (inReadYourWritesWindow())
+            return primary;
+        return replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+    }
+}
@@ -1,21 +1,43 @@
 package com.example.candidate_registry.controller;
 
 import com.example.candidate_registry.dto.CandidateDto;
+import com.example.candidate_registry.dto.CandidateFacetCounts;
+import com.example.candidate_registry.dto.CandidatePage;
+import com.example.candidate_registry.dto.CandidateFieldSelection;
+import com.example.candidate_registry.dto.CandidateSlice;
 import com.example.candidate_registry.dto.CsvUploadResult;
+import com.example.candidate_registry.dto.UploadJobStatus;
 import com.example.candidate_registry.entity.Candidate;
+import com.example.candidate_registry.repository.CandidateSummary;
+import com.example.candidate_registry.service.CandidateFacets;
+import com.example.candidate_registry.service.CandidateSearchCache;
 import com.example.candidate_registry.service.CandidateService;
+import com.example.candidate_registry.service.CandidateSort;
+import com.example.candidate_registry.service.CountMode;
+import com.example.candidate_registry.service.ErrorReportStore;
+import com.example.candidate_registry.service.ExternalRefLocks;
+import com.example.candidate_registry.service.KeysetCursor;
+import com.example.candidate_registry.service.PartitionedCsvExport;
+import com.example.candidate_registry.service.RegistryVersion;
+import com.example.candidate_registry.service.UploadJobService;
+import com.example.candidate_registry.service.UploadProgress;
 import org.springframework.data.domain.*;
 import org.springframework.http.*;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import java.io.*;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/candidates")
@@ -23,74 +45,361 @@ public class CandidateApiController {
 
     private final CandidateService service;
 
-    public CandidateApiController(CandidateService service) {
+    private final UploadJobService jobs;
+
+    private final CandidateSearchCache searchCache;
+
+    private final ErrorReportStore errorReports;
+
+    private final CandidateFacets facets;
+
+    private final PartitionedCsvExport partitionedExport;
+
+    private final RegistryVersion version;
+
+    public CandidateApiController(CandidateService service, UploadJobService jobs, CandidateSearchCache searchCache,
+            ErrorReportStore errorReports, CandidateFacets facets, PartitionedCsvExport partitionedExport,
+            RegistryVersion version) {
         this.service = service;
+        this.jobs = jobs;
+        this.searchCache = searchCache;
+        this.errorReports = errorReports;
+        this.facets = facets;
+        this.partitionedExport = partitionedExport;
+        this.version = version;
     }
 
+    /**
+     * Paged list. {@code fields} picks the returned columns; by default every column
+     * except notes, which is read only when requested (or through the detail endpoint).
+     * {@code count} (exact, estimated, capped) says how {@code totalElements} is obtained
+     * when it is not known already; {@code totalKind} in the response tells which it is.
+     * Answers {@code If-None-Match} / {@code If-Modified-Since} with 304 while no upload has
+     * changed data since.
+     */
     @GetMapping
-    public Page<CandidateDto> list(
+    public ResponseEntity<?> list(
             @RequestParam(required = false) String name,
             @RequestParam(required = false) String nationality,
             @RequestParam(required = false) String origin,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "external_ref") String sort,
-            @RequestParam(defaultValue = "asc") String dir) {
-        Sort.Direction d = "desc".equalsIgnoreCase(dir) ? Sort.Direction.DESC : Sort.Direction.ASC;
-        Pageable p = PageRequest.of(Math.max(0, page), size, Sort.by(d, sort));
-        Page<Candidate> pageData = service.search(name, nationality, origin, p);
-        return pageData.map(CandidateDto::new);
+            @RequestParam(defaultValue = "asc") String dir,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String count,
+            ServletWebRequest request) {
+        CandidateFieldSelection f;
+        try {
+            f = CandidateFieldSelection.parse(fields);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", "INVALID_FIELDS", "message", ex.getMessage()));
+        }
+        CountMode mode;
+        try {
+            mode = CountMode.parse(count, null);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", "INVALID_COUNT", "message", ex.getMessage()));
+        }
+        if (notModified(request))
+            return null;
+        Pageable p = PageRequest.of(Math.max(0, page), size, CandidateSort.of(sort, dir));
+        CandidatePage<Map<String, Object>> pageData = f.includesNotes()
+                ? service.search(name, nationality, origin, p, Candidate.class, mode).map(f::render)
+                : service.search(name, nationality, origin, p, CandidateSummary.class, mode).map(f::render);
+        return ResponseEntity.ok(pageData);
+    }
+
+    /** Hit, miss, eviction and invalidation counts of the list cache, for sizing it. */
+    @GetMapping("/search-cache/stats")
+    public CandidateSearchCache.Stats searchCacheStats() {
+        return searchCache.stats();
+    }
+
+    /**
+     * Candidate counts per nationality and origin. Without {@code name} they come from
+     * counters kept current by uploads; with it they are counted for the matching names.
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<?> facets(@RequestParam(required = false) String name,
+            @RequestParam(defaultValue = "0") int limit) {
+        try {
+            return ResponseEntity.ok(facets.counts(name, limit));
+        } catch (CandidateFacets.FacetFilterTooBroadException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", "FILTER_TOO_BROAD", "message", ex.getMessage()));
+        }
+    }
+
+    /** Recounts the facet counters from the table, e.g. after changes made outside uploads. */
+    @PostMapping("/facets/rebuild")
+    public CandidateFacetCounts rebuildFacets() {
+        facets.rebuild();
+        return facets.counts(null, 0);
+    }
+
+    @GetMapping("/{externalRef:.+}")
+    public ResponseEntity<CandidateDto> detail(@PathVariable String externalRef) {
+        return service.findByExternalRef(externalRef)
+                .map(c -> ResponseEntity.ok(new CandidateDto(c)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Keyset-paged list: {@code paging=keyset} starts at the first row, and each response's
+     * {@code nextCursor} is passed back as {@code cursor} for the following page. The
+     * cursor carries the sort, so {@code sort}/{@code dir} only apply to the first page.
+     * Conditional GETs as for the offset list.
+     */
+    @GetMapping(params = "paging=keyset")
+    public ResponseEntity<?> listKeyset(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String nationality,
+            @RequestParam(required = false) String origin,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "external_ref") String sort,
+            @RequestParam(defaultValue = "asc") String dir,
+            @RequestParam(required = false) String fields,
+            ServletWebRequest request) {
+        CandidateFieldSelection f;
+        try {
+            f = CandidateFieldSelection.parse(fields);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", "INVALID_FIELDS", "message", ex.getMessage()));
+        }
+        KeysetCursor c;
+        try {
+            c = cursor == null || cursor.isEmpty() ? KeysetCursor.first(sort, dir) : KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", "INVALID_CURSOR", "message", ex.getMessage()));
+        }
+        if (!CandidateSort.supportsKeyset(c.sort())) {
+            return ResponseEntity.badRequest().body(Map.of("error", "INVALID_SORT",
+                    "message", "sort '" + c.sort() + "' is not supported with keyset paging"));
+        }
+        if (notModified(request))
+            return null;
+        Window<?> window;
+        CandidateSlice slice = new CandidateSlice();
+        if (f.includesNotes()) {
+            Window<Candidate> w = service.scroll(name, nationality, origin, c, Math.max(1, size), Candidate.class);
+            slice.content = w.map(f::render).getContent();
+            window = w;
+        } else {
+            Window<CandidateSummary> w = service.scroll(name, nationality, origin, c, Math.max(1, size),
+                    CandidateSummary.class);
+            slice.content = w.map(f::render).getContent();
+            window = w;
+        }
+        slice.size = slice.content.size();
+        slice.hasNext = window.hasNext();
+        slice.nextCursor = window.hasNext() ? c.next(window.positionAt(window.size() - 1)).encode() : null;
+        return ResponseEntity.ok(slice);
     }
 
     @PostMapping("/csv/upload")
-    public ResponseEntity<?> uploadCsv(@RequestParam("file") MultipartFile file, HttpServletRequest req)
-            throws IOException {
+    public ResponseEntity<?> uploadCsv(@RequestParam("file") MultipartFile file,
+            @RequestParam(defaultValue = "false") boolean async,
+            @RequestParam(defaultValue = "false") boolean force, HttpServletRequest req) throws IOException {
         try {
             String baseUrl = getBaseUrl(req);
-            CsvUploadResult res = service.uploadCsv(file, baseUrl);
+            if (async) {
+                UploadJobService.UploadJob job = jobs.submit(file, baseUrl, force);
+                return ResponseEntity.accepted().body(new UploadJobStatus(job, baseUrl));
+            }
+            CsvUploadResult res = service.uploadCsv(file, baseUrl, force);
+            return ResponseEntity.ok(res);
+        } catch (CandidateService.FileSizeLimitExceededException ex) {
+            return errorResponse(ex.code, ex.getMessage());
+        } catch (RejectedExecutionException ex) {
+            Map<String, String> body = Map.of("error", "BUSY", "message", "Too many upload jobs queued.");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(body);
+        } catch (ExternalRefLocks.KeysBusyException ex) {
+            return busyResponse(ex);
+        } catch (RuntimeException ex) {
+            return errorResponse("MALFORMED_CSV", ex.getMessage());
+        }
+    }
+
+    /**
+     * Upload with the CSV as the request body instead of a multipart file, e.g.
+     * {@code Content-Type: text/csv} with {@code Content-Encoding: gzip}. Always synchronous.
+     */
+    @PostMapping(value = "/csv/upload", consumes = { "text/csv", "application/gzip" })
+    public ResponseEntity<?> uploadCsvBody(@RequestParam(defaultValue = "false") boolean force,
+            HttpServletRequest req) throws IOException {
+        try (InputStream in = req.getInputStream()) {
+            CsvUploadResult res = service.uploadCsv(in, req.getContentLengthLong(), getBaseUrl(req), force,
+                    new UploadProgress());
             return ResponseEntity.ok(res);
         } catch (CandidateService.FileSizeLimitExceededException ex) {
-            Map<String, String> body = Map.of("error", ex.code, "message", ex.getMessage());
-            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(body);
+            return errorResponse(ex.code, ex.getMessage());
+        } catch (ExternalRefLocks.KeysBusyException ex) {
+            return busyResponse(ex);
         } catch (RuntimeException ex) {
-            Map<String, String> body = Map.of("error", "MALFORMED_CSV", "message", ex.getMessage());
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(body);
+            return errorResponse("MALFORMED_CSV", ex.getMessage());
         }
     }
 
-    @GetMapping("/csv/upload/errors/{filename:.+}")
-    public ResponseEntity<?> downloadErrorReport(@PathVariable String filename) throws IOException {
-        String decoded = URLDecoder.decode(filename, StandardCharsets.UTF_8);
-        File f = service.getErrorReportFile(decoded);
-        if (f == null)
+    @GetMapping("/csv/upload/jobs/{jobId}")
+    public ResponseEntity<?> uploadJobStatus(@PathVariable String jobId, HttpServletRequest req) {
+        UploadJobService.UploadJob job = jobs.get(jobId);
+        if (job == null)
             return ResponseEntity.notFound().build();
-        InputStreamResource resource = new InputStreamResource(new FileInputStream(f));
-        String ct = "text/csv; charset=utf-8";
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + decoded + "\"")
-                .contentType(MediaType.parseMediaType(ct))
-                .body(resource);
+        return ResponseEntity.ok(new UploadJobStatus(job, getBaseUrl(req)));
+    }
+
+    @GetMapping("/csv/upload/jobs/{jobId}/result")
+    public ResponseEntity<?> uploadJobResult(@PathVariable String jobId, HttpServletRequest req) {
+        UploadJobService.UploadJob job = jobs.get(jobId);
+        if (job == null)
+            return ResponseEntity.notFound().build();
+        switch (job.getStatus()) {
+            case SUCCEEDED:
+                return ResponseEntity.ok(job.getResult());
+            case FAILED:
+                return errorResponse(job.getErrorCode(), job.getErrorMessage());
+            default:
+                // still queued or running: answer with the progress instead
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(new UploadJobStatus(job, getBaseUrl(req)));
+        }
+    }
+
+    private ResponseEntity<Map<String, String>> errorResponse(String code, String message) {
+        HttpStatus status = "FILE_LIMIT".equals(code) ? HttpStatus.PAYLOAD_TOO_LARGE : HttpStatus.BAD_REQUEST;
+        Map<String, String> body = Map.of("error", code, "message", String.valueOf(message));
+        return ResponseEntity.status(status).body(body);
+    }
+
+    // the upload's external_refs stayed reserved by other uploads; worth retrying later
+    private ResponseEntity<Map<String, String>> busyResponse(ExternalRefLocks.KeysBusyException ex) {
+        Map<String, String> body = Map.of("error", "BUSY", "message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(body);
+    }
+
+    /**
+     * Error report download. Honors a single-range {@code Range} header, always sends
+     * {@code Content-Length}, and sends gzip-stored reports as they are to clients that
+     * accept gzip. File bytes go through Tomcat's sendfile when available, otherwise
+     * through {@link ErrorReportStore#transfer}.
+     */
+    @GetMapping("/csv/upload/errors/{id:.+}")
+    public void downloadErrorReport(@PathVariable String id, HttpServletRequest req, HttpServletResponse res)
+            throws IOException {
+        String decoded = URLDecoder.decode(id, StandardCharsets.UTF_8);
+        ErrorReportStore.Report report = errorReports.find(decoded);
+        if (report == null) {
+            res.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        boolean encoded = report.gzipped() && acceptsGzip(req);
+        long length = encoded ? report.storedLength() : report.plainLength();
+
+        res.setContentType("text/csv; charset=utf-8");
+        res.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + decoded + "\"");
+        res.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (report.gzipped())
+            res.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (encoded)
+            res.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = req.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && length > 0) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                // multiple ranges are answered with the whole report
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                    if (start >= length || start > end)
+                        throw new IllegalArgumentException("range not satisfiable");
+                    res.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                    res.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+                }
+            } catch (IllegalArgumentException ex) {
+                res.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                res.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+        }
+        long count = end - start + 1;
+        res.setContentLengthLong(count);
+        if (count <= 0 || HttpMethod.HEAD.matches(req.getMethod()))
+            return;
+
+        if ((encoded || !report.gzipped()) && Boolean.TRUE.equals(req.getAttribute(SENDFILE_SUPPORT))) {
+            // the connector writes the file straight to the socket after this method returns
+            req.setAttribute(SENDFILE_FILENAME, report.path().toAbsolutePath().toString());
+            req.setAttribute(SENDFILE_START, start);
+            req.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        errorReports.transfer(report, encoded, start, count, res.getOutputStream());
+    }
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static boolean acceptsGzip(HttpServletRequest req) {
+        for (Enumeration<String> e = req.getHeaders(HttpHeaders.ACCEPT_ENCODING); e.hasMoreElements();) {
+            for (String token : e.nextElement().split(",")) {
+                String[] parts = token.trim().split(";");
+                if (!parts[0].trim().equalsIgnoreCase("gzip"))
+                    continue;
+                // "gzip;q=0" refuses it
+                return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
     }
 
     @GetMapping("/csv/download")
-    public ResponseEntity<?> downloadCsv(
+    public ResponseEntity<StreamingResponseBody> downloadCsv(
             @RequestParam(required = false) String name,
             @RequestParam(required = false) String nationality,
-            @RequestParam(required = false) String origin) throws IOException {
-        // fetch all matching (no paging)
-        Pageable p = Pageable.unpaged();
-        List<Candidate> list = service.search(name, nationality, origin, PageRequest.of(0, Integer.MAX_VALUE))
-                .getContent();
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        service.writeCsvAll(list, baos);
-        byte[] bytes = baos.toByteArray();
+            @RequestParam(required = false) String origin,
+            @RequestParam(defaultValue = "false") boolean parallel, HttpServletRequest req,
+            ServletWebRequest request) {
+        // a poller whose copy is current gets a 304 before any row is read
+        if (notModified(request))
+            return null;
+        // stream all matching rows (no paging) as the database returns them; gzip them for
+        // clients that accept it, flushing compressed output with every chunk. With parallel
+        // the id ranges are read and formatted by several workers and written in order.
+        boolean gzip = acceptsGzip(req);
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, 8192, true) : out;
+            if (parallel)
+                partitionedExport.exportCsv(name, nationality, origin, target);
+            else
+                service.exportCsv(name, nationality, origin, target);
+        };
         String filename = "candidate_export_"
                 + java.time.LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"))
                 + ".csv";
-        return ResponseEntity.ok()
+        ResponseEntity.BodyBuilder res = ResponseEntity.ok().header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip)
+            res.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return res
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
                 .contentType(MediaType.parseMediaType("text/csv; charset=utf-8"))
-                .body(bytes);
+                .body(body);
+    }
+
+    // 304 when the client's copy is of the current registry version. Otherwise the response
+    // gets ETag and Last-Modified, and no-cache so that clients revalidate on every use
+    // instead of reusing it under heuristic freshness
+    private boolean notModified(ServletWebRequest request) {
+        RegistryVersion.Stamp stamp = version.current();
+        request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        return request.checkNotModified(stamp.etag(), stamp.lastModified());
     }
 
     private String getBaseUrl(HttpServletRequest req) {
@@ -100,11 +409,4 @@ public class CandidateApiController {
         String base = scheme + "://" + host + (port == 80 || port == 443 ? "" : ":" + port);
         return base;
     }
-
-    // helper class for resource streaming
-    static class InputStreamResource extends org.springframework.core.io.InputStreamResource {
-        public InputStreamResource(InputStream inputStream) {
-            super(inputStream);
-        }
-    }
 }
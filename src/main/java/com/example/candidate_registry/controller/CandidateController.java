@@ -1,20 +1,30 @@
 package com.example.candidate_registry.controller;
 
-import com.example.candidate_registry.entity.Candidate;
+import com.example.candidate_registry.dto.CandidatePage;
+import com.example.candidate_registry.repository.CandidateSummary;
 import com.example.candidate_registry.service.CandidateService;
+import com.example.candidate_registry.service.CandidateSort;
+import com.example.candidate_registry.service.CountMode;
+import com.example.candidate_registry.service.RegistryVersion;
 import org.springframework.data.domain.*;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.ServletWebRequest;
 
 @Controller
 public class CandidateController {
 
     private final CandidateService service;
 
-    public CandidateController(CandidateService service) {
+    private final RegistryVersion version;
+
+    public CandidateController(CandidateService service, RegistryVersion version) {
         this.service = service;
+        this.version = version;
     }
 
     @GetMapping("/candidates")
@@ -26,11 +36,27 @@ public class CandidateController {
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "external_ref") String sort,
             @RequestParam(defaultValue = "asc") String dir,
+            @RequestParam(required = false) String count,
+            ServletWebRequest request,
             Model model) {
+        // 304 while no upload has changed data since the browser's copy
+        RegistryVersion.Stamp stamp = version.current();
+        request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        if (request.checkNotModified(stamp.etag(), stamp.lastModified()))
+            return null;
 
-        Sort.Direction d = "desc".equalsIgnoreCase(dir) ? Sort.Direction.DESC : Sort.Direction.ASC;
-        Pageable p = PageRequest.of(Math.max(0, page), size, Sort.by(d, sort));
-        Page<Candidate> pageData = service.search(name, nationality, origin, p);
+        // an unknown count mode falls back to the configured one rather than failing the page
+        CountMode mode;
+        try {
+            mode = CountMode.parse(count, null);
+        } catch (IllegalArgumentException ex) {
+            mode = null;
+            count = null;
+        }
+        Pageable p = PageRequest.of(Math.max(0, page), size, CandidateSort.of(sort, dir));
+        // the list shows the short columns only; notes stay out of the query
+        CandidatePage<CandidateSummary> pageData = service.search(name, nationality, origin, p,
+                CandidateSummary.class, mode);
 
         model.addAttribute("candidates", pageData);
         model.addAttribute("name", name);
@@ -38,6 +64,7 @@ public class CandidateController {
         model.addAttribute("origin", origin);
         model.addAttribute("sort", sort);
         model.addAttribute("dir", dir);
+        model.addAttribute("count", count);
         return "candidates/index";
     }
 }
@@ -0,0 +1,27 @@
+package com.example.candidate_registry.dto;
+
+import java.util.List;
+
+/**
+ * Candidate counts per nationality and per origin, largest first. {@code source} tells
+ * how they were obtained: {@code counters} (maintained in memory, no name filter),
+ * {@code index} (name filter narrowed by the search index) or {@code scan}.
+ */
+public class CandidateFacetCounts {
+    public String name;
+    public String source;
+    public long total;
+    public List<Bucket> nationality;
+    public List<Bucket> origin;
+
+    /** One facet value; {@code value} is null for candidates without one. */
+    public static class Bucket {
+        public String value;
+        public long count;
+
+        public Bucket(String value, long count) {
+            this.value = value;
+            this.count = count;
+        }
+    }
+}
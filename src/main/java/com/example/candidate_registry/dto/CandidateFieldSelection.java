@@ -0,0 +1,84 @@
+package com.example.candidate_registry.dto;
+
+import com.example.candidate_registry.entity.Candidate;
+import com.example.candidate_registry.repository.CandidateSummary;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * The {@code fields} parameter of the list API: which columns to return per row.
+ * Without it the list returns every column except notes; asking for notes switches
+ * the query back to full rows.
+ */
+public class CandidateFieldSelection {
+
+    // JSON names in output order
+    private static final List<String> ALL = List.of("externalRef", "name", "age", "nationality", "origin", "notes");
+
+    private static final List<String> DEFAULT = ALL.subList(0, ALL.size() - 1);
+
+    private final List<String> fields;
+
+    private CandidateFieldSelection(List<String> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * Parses a comma-separated field list; CSV column names (external_ref) are accepted too.
+     * Unknown names are rejected with {@link IllegalArgumentException}.
+     */
+    public static CandidateFieldSelection parse(String param) {
+        if (param == null || param.isBlank())
+            return new CandidateFieldSelection(DEFAULT);
+        Set<String> requested = new HashSet<>();
+        for (String f : param.split(",")) {
+            String name = f.trim();
+            if (name.equals("external_ref"))
+                name = "externalRef";
+            if (!ALL.contains(name))
+                throw new IllegalArgumentException("unknown field '" + f.trim() + "'");
+            requested.add(name);
+        }
+        List<String> ordered = new ArrayList<>();
+        for (String f : ALL) {
+            if (requested.contains(f))
+                ordered.add(f);
+        }
+        return new CandidateFieldSelection(ordered);
+    }
+
+    public boolean includesNotes() {
+        return fields.contains("notes");
+    }
+
+    public Map<String, Object> render(CandidateSummary s) {
+        return render(f -> switch (f) {
+            case "externalRef" -> s.getExternalRef();
+            case "name" -> s.getName();
+            case "age" -> s.getAge();
+            case "nationality" -> s.getNationality();
+            case "origin" -> s.getOrigin();
+            default -> null;
+        });
+    }
+
+    public Map<String, Object> render(Candidate c) {
+        return render(f -> switch (f) {
+            case "externalRef" -> c.getExternalRef();
+            case "name" -> c.getName();
+            case "age" -> c.getAge();
+            case "nationality" -> c.getNationality();
+            case "origin" -> c.getOrigin();
+            case "notes" -> c.getNotes();
+            default -> null;
+        });
+    }
+
+    private Map<String, Object> render(Function<String, Object> getter) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String f : fields)
+            row.put(f, getter.apply(f));
+        return row;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.candidate_registry.dto;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of the offset-paged list. The rows come from a slice query, so whether a next
+ * page exists is known exactly; the total is exact, estimated (an upper bound from the
+ * search index) or capped (at least {@code totalElements}), as {@link #getTotalKind()} says.
+ */
+public class CandidatePage<T> extends PageImpl<T> {
+
+    private final String totalKind;
+
+    private final boolean hasNext;
+
+    public CandidatePage(List<T> content, Pageable pageable, long total, String totalKind, boolean hasNext) {
+        // a next page exists, so there are more rows than this page ends at, whatever the estimate says
+        super(content, pageable, hasNext ? Math.max(total, pageable.getOffset() + content.size() + 1)
+                : Math.max(total, pageable.getOffset() + content.size()));
+        this.totalKind = totalKind;
+        this.hasNext = hasNext;
+    }
+
+    /** "exact", "estimated" or "capped". */
+    public String getTotalKind() {
+        return totalKind;
+    }
+
+    /** The total for display: "1,234", "~1,234" or "10,000+". */
+    public String getTotalLabel() {
+        return label(getTotalElements());
+    }
+
+    public String getTotalPagesLabel() {
+        return label(getTotalPages());
+    }
+
+    @Override
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    @Override
+    public boolean isLast() {
+        return !hasNext;
+    }
+
+    @Override
+    public <U> CandidatePage<U> map(Function<? super T, ? extends U> converter) {
+        return new CandidatePage<>(getConvertedContent(converter), getPageable(), getTotalElements(), totalKind,
+                hasNext);
+    }
+
+    private String label(long n) {
+        return switch (totalKind) {
+            case "estimated" -> String.format("~%,d", n);
+            case "capped" -> String.format("%,d+", n);
+            default -> String.format("%,d", n);
+        };
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.candidate_registry.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of a keyset-paged list: no total count, just whether more rows follow
+ * and the cursor to fetch them.
+ */
+public class CandidateSlice {
+    public List<Map<String, Object>> content;
+    public int size;
+    public boolean hasNext;
+    public String nextCursor;
+}
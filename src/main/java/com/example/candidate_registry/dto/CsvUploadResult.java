@@ -7,8 +7,22 @@ public class CsvUploadResult {
     public int totalRows;
     public int successCount;
     public int failureCount;
+    // rows counted in successCount that matched the stored content and were not written
+    public int unchangedCount;
     public List<Map<String, String>> warnings;
     public ErrorReport errorReport;
+    // SHA-256 of the uploaded bytes
+    public String fileSha256;
+    // true when an identical earlier upload's result is returned without importing again
+    public boolean replayed;
+    // transactions the rows were committed in; 1 unless app.upload.commit.chunk-rows is set
+    public int committedChunks;
+    // id of a chunked import, kept when it is resumed
+    public String uploadId;
+    // set when a chunked import resumed after this row of an interrupted earlier attempt
+    public Integer resumedAfterRow;
+    // milliseconds per import phase (parse, validate, duplicate_check, lookup, save, error_report)
+    public Map<String, Long> phaseTimings;
 
     public static class ErrorReport {
         public boolean available;
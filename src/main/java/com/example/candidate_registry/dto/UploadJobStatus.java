@@ -0,0 +1,37 @@
+package com.example.candidate_registry.dto;
+
+import com.example.candidate_registry.service.UploadJobService;
+import com.example.candidate_registry.service.UploadProgress;
+
+public class UploadJobStatus {
+    public String jobId;
+    public String status;
+    public long rowsParsed;
+    public long rowsSucceeded;
+    public long rowsFailed;
+    public double rowsPerSecond;
+    public long elapsedMs;
+    public String error;
+    public String message;
+    public String statusUrl;
+    public String resultUrl;
+
+    public UploadJobStatus() {
+    }
+
+    public UploadJobStatus(UploadJobService.UploadJob job, String baseUrl) {
+        UploadProgress p = job.progress;
+        this.jobId = job.id;
+        this.status = job.getStatus().name();
+        this.rowsParsed = p.rowsParsed.get();
+        this.rowsSucceeded = p.rowsSucceeded.get();
+        this.rowsFailed = p.rowsFailed.get();
+        this.rowsPerSecond = p.rowsPerSecond();
+        this.elapsedMs = p.elapsedMillis();
+        this.error = job.getErrorCode();
+        this.message = job.getErrorMessage();
+        String base = (baseUrl != null ? baseUrl : "") + "/api/candidates/csv/upload/jobs/" + job.id;
+        this.statusUrl = base;
+        this.resultUrl = base + "/result";
+    }
+}
@@ -30,6 +30,10 @@ public class Candidate {
     @Column(name = "external_ref", length = 64)
     private String externalRef;
 
+    // see CandidateContentHash
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     @Column(name = "created_at", insertable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -93,6 +97,14 @@ public class Candidate {
         this.externalRef = externalRef;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -0,0 +1,40 @@
+package com.example.candidate_registry.entity;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * The content_hash of a candidate: SHA-256 (lower-case hex) over name, age, nationality,
+ * origin and notes. Fields are separated by U+001F and null is encoded as U+0000, so
+ * null, empty and shifted values never collide. external_ref is the key, not content.
+ */
+public final class CandidateContentHash {
+
+    private CandidateContentHash() {
+    }
+
+    public static String of(Candidate c) {
+        return of(c.getName(), c.getAge(), c.getNationality(), c.getOrigin(), c.getNotes());
+    }
+
+    public static String of(String name, Integer age, String nationality, String origin, String notes) {
+        StringBuilder sb = new StringBuilder(64 + (notes == null ? 0 : notes.length()));
+        append(sb, name);
+        append(sb, age == null ? null : age.toString());
+        append(sb, nationality);
+        append(sb, origin);
+        append(sb, notes);
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(sb.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void append(StringBuilder sb, String value) {
+        sb.append(value == null ? "\u0000" : value).append('\u001F');
+    }
+}
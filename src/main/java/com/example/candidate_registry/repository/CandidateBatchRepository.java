@@ -0,0 +1,81 @@
+package com.example.candidate_registry.repository;
+
+import com.example.candidate_registry.entity.Candidate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * JDBC batch writes for the CSV upsert.
+ * Candidate ids use IDENTITY, which keeps Hibernate from batching inserts, so bulk
+ * inserts and updates go through JdbcTemplate in the caller's transaction instead.
+ */
+@Repository
+public class CandidateBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO candidate (external_ref, name, age, nationality, origin, notes, "
+            + "content_hash) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_SQL = "UPDATE candidate SET name = ?, age = ?, nationality = ?, origin = ?, notes = ?, "
+            + "content_hash = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbc;
+
+    public CandidateBatchRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Inserts the candidates in one batch and sets the generated ids on them.
+     */
+    public void insertAll(List<Candidate> candidates) {
+        if (candidates.isEmpty())
+            return;
+        jdbc.execute((Connection con) -> con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                (PreparedStatement ps) -> {
+                    for (Candidate c : candidates) {
+                        ps.setString(1, c.getExternalRef());
+                        bindColumns(ps, 2, c);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        for (Candidate c : candidates) {
+                            if (!keys.next())
+                                throw new IllegalStateException("missing generated key for " + c.getExternalRef());
+                            c.setId(keys.getLong(1));
+                        }
+                    }
+                    return null;
+                });
+    }
+
+    public void updateAll(List<Candidate> candidates) {
+        if (candidates.isEmpty())
+            return;
+        jdbc.batchUpdate(UPDATE_SQL, candidates, candidates.size(), (ps, c) -> {
+            bindColumns(ps, 1, c);
+            ps.setLong(7, c.getId());
+        });
+    }
+
+    // name, age, nationality, origin, notes, content_hash starting at the given parameter index
+    private static void bindColumns(PreparedStatement ps, int i, Candidate c) throws SQLException {
+        ps.setString(i, c.getName());
+        if (c.getAge() == null)
+            ps.setNull(i + 1, Types.INTEGER);
+        else
+            ps.setInt(i + 1, c.getAge());
+        ps.setString(i + 2, c.getNationality());
+        ps.setString(i + 3, c.getOrigin());
+        ps.setString(i + 4, c.getNotes());
+        ps.setString(i + 5, c.getContentHash());
+    }
+}
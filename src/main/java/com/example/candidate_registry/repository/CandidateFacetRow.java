@@ -0,0 +1,12 @@
+package com.example.candidate_registry.repository;
+
+/**
+ * Number of candidates per (nationality, origin) pair, for the facet counts.
+ */
+public interface CandidateFacetRow {
+    String getNationality();
+
+    String getOrigin();
+
+    Long getCount();
+}
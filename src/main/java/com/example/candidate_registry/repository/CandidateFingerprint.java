@@ -0,0 +1,17 @@
+package com.example.candidate_registry.repository;
+
+// what the upload needs to know about an existing row: its id, the stored content hash,
+// and the searchable fields for the change event; notes are not read
+public interface CandidateFingerprint {
+    Long getId();
+
+    String getExternalRef();
+
+    String getName();
+
+    String getNationality();
+
+    String getOrigin();
+
+    String getContentHash();
+}
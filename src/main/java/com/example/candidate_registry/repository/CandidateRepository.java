@@ -1,15 +1,101 @@
 package com.example.candidate_registry.repository;
 
 import com.example.candidate_registry.entity.Candidate;
-import org.springframework.data.domain.Page;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface CandidateRepository extends JpaRepository<Candidate, Long> {
     Optional<Candidate> findByExternalRef(String externalRef);
 
-    Page<Candidate> findByNameContainingIgnoreCaseAndNationalityContainingIgnoreCaseAndOriginContainingIgnoreCase(
-            String name, String nationality, String origin, Pageable pageable);
+    // upload lookup of existing rows by key
+    List<CandidateFingerprint> findAllByExternalRefIn(Collection<String> externalRefs);
+
+    // read-only: the upload applies changes through CandidateBatchRepository, so these
+    // entities must never be dirty-checked or flushed by Hibernate
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<Candidate> findAllByIdIn(Collection<Long> ids);
+
+    // list queries take the result type: Candidate for full rows, or a projection such as
+    // CandidateSummary to select only the short columns. They return slices (one row more
+    // than the page, no count query); the total comes from CandidateCounts
+    <T> Slice<T> findByNameContainingIgnoreCaseAndNationalityContainingIgnoreCaseAndOriginContainingIgnoreCase(
+            String name, String nationality, String origin, Pageable pageable, Class<T> type);
+
+    // the list query restricted to ids preselected by the search index
+    <T> Slice<T> findByIdInAndNameContainingIgnoreCaseAndNationalityContainingIgnoreCaseAndOriginContainingIgnoreCase(
+            Collection<Long> ids, String name, String nationality, String origin, Pageable pageable, Class<T> type);
+
+    // exact list totals, with and without index-preselected ids
+    long countByNameContainingIgnoreCaseAndNationalityContainingIgnoreCaseAndOriginContainingIgnoreCase(
+            String name, String nationality, String origin);
+
+    long countByIdInAndNameContainingIgnoreCaseAndNationalityContainingIgnoreCaseAndOriginContainingIgnoreCase(
+            Collection<Long> ids, String name, String nationality, String origin);
+
+    // the list total, but the scan stops after :limit matches. Patterns are escaped with '!'
+    // (EscapeCharacter.of('!')): a backslash literal would read differently in MySQL and H2
+    @Query(value = "select count(*) from (select 1 from candidate c"
+            + " where upper(c.name) like upper(:name) escape '!'"
+            + " and upper(c.nationality) like upper(:nationality) escape '!'"
+            + " and upper(c.origin) like upper(:origin) escape '!' limit :limit) t", nativeQuery = true)
+    long countMatchingUpTo(@Param("name") String name, @Param("nationality") String nationality,
+            @Param("origin") String origin, @Param("limit") long limit);
+
+    // keyset chunk of the searchable columns, for rebuilding the search index
+    List<CandidateSearchRow> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+    // keyset (seek) paging variants of the list queries
+    <T> Window<T> findByNameContainingIgnoreCaseAndNationalityContainingIgnoreCaseAndOriginContainingIgnoreCase(
+            String name, String nationality, String origin, ScrollPosition position, Sort sort, Limit limit,
+            Class<T> type);
+
+    <T> Window<T> findByIdInAndNameContainingIgnoreCaseAndNationalityContainingIgnoreCaseAndOriginContainingIgnoreCase(
+            Collection<Long> ids, String name, String nationality, String origin, ScrollPosition position, Sort sort,
+            Limit limit, Class<T> type);
+
+    // keyset chunk for the CSV export: same filters as the list, rows after the given id
+    List<Candidate> findByIdGreaterThanAndNameContainingIgnoreCaseAndNationalityContainingIgnoreCaseAndOriginContainingIgnoreCase(
+            Long afterId, String name, String nationality, String origin, Pageable pageable);
+
+    // id bounds and one id range of the export, for the partitioned export
+    @Query("select min(c.id) from Candidate c")
+    Long findMinId();
+
+    @Query("select max(c.id) from Candidate c")
+    Long findMaxId();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<Candidate> findByIdBetweenAndNameContainingIgnoreCaseAndNationalityContainingIgnoreCaseAndOriginContainingIgnoreCaseOrderByIdAsc(
+            Long fromId, Long toId, String name, String nationality, String origin);
+
+    // facet counts: the whole table for rebuilding the counters, and the name-filtered
+    // variants (LIKE pattern escaped with a backslash) over index-preselected ids or as a scan
+    @Query("select c.nationality as nationality, c.origin as origin, count(c) as count from Candidate c"
+            + " group by c.nationality, c.origin")
+    List<CandidateFacetRow> countByNationalityAndOrigin();
+
+    @Query("select c.nationality as nationality, c.origin as origin, count(c) as count from Candidate c"
+            + " where c.id in :ids and upper(c.name) like upper(:pattern) escape '\\'"
+            + " group by c.nationality, c.origin")
+    List<CandidateFacetRow> countByNationalityAndOriginForIds(@Param("ids") Collection<Long> ids,
+            @Param("pattern") String pattern);
+
+    @Query("select c.nationality as nationality, c.origin as origin, count(c) as count from Candidate c"
+            + " where upper(c.name) like upper(:pattern) escape '\\'"
+            + " group by c.nationality, c.origin")
+    List<CandidateFacetRow> countByNationalityAndOriginForName(@Param("pattern") String pattern);
 }
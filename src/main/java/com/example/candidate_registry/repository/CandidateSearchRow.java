@@ -0,0 +1,14 @@
+package com.example.candidate_registry.repository;
+
+/**
+ * Projection of the columns the search index covers.
+ */
+public interface CandidateSearchRow {
+    Long getId();
+
+    String getName();
+
+    String getNationality();
+
+    String getOrigin();
+}
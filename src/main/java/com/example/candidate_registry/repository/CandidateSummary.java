@@ -0,0 +1,18 @@
+package com.example.candidate_registry.repository;
+
+/**
+ * List projection: every column except notes, so list pages never read the TEXT column.
+ */
+public interface CandidateSummary {
+    Long getId();
+
+    String getExternalRef();
+
+    String getName();
+
+    Integer getAge();
+
+    String getNationality();
+
+    String getOrigin();
+}
@@ -0,0 +1,61 @@
+package com.example.candidate_registry.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Checkpoints of imports committed in chunks, keyed by the SHA-256 of the uploaded file.
+ * A checkpoint is saved in the transaction of the chunk it records, so it always matches
+ * the committed rows; it is removed when the import completes.
+ */
+@Repository
+public class UploadCheckpointRepository {
+
+    public record Checkpoint(String fileSha256, String uploadId, int lastCommittedRow, int committedChunks,
+            int successCount, int failureCount, int unchangedCount, String errorReportId, long errorReportLength) {
+    }
+
+    private final JdbcTemplate jdbc;
+
+    public UploadCheckpointRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public Optional<Checkpoint> find(String fileSha256) {
+        List<Checkpoint> found = jdbc.query(
+                "SELECT file_sha256, upload_id, last_committed_row, committed_chunks, success_count, failure_count,"
+                        + " unchanged_count, error_report_id, error_report_length"
+                        + " FROM upload_checkpoint WHERE file_sha256 = ?",
+                (rs, i) -> new Checkpoint(rs.getString(1), rs.getString(2), rs.getInt(3), rs.getInt(4),
+                        rs.getInt(5), rs.getInt(6), rs.getInt(7), rs.getString(8), rs.getLong(9)),
+                fileSha256);
+        return found.stream().findFirst();
+    }
+
+    public void save(Checkpoint c) {
+        int updated = jdbc.update("UPDATE upload_checkpoint SET upload_id = ?, last_committed_row = ?,"
+                + " committed_chunks = ?, success_count = ?, failure_count = ?, unchanged_count = ?,"
+                + " error_report_id = ?, error_report_length = ?, updated_at = CURRENT_TIMESTAMP"
+                + " WHERE file_sha256 = ?",
+                c.uploadId(), c.lastCommittedRow(), c.committedChunks(), c.successCount(), c.failureCount(),
+                c.unchangedCount(), c.errorReportId(), c.errorReportLength(), c.fileSha256());
+        if (updated == 0) {
+            jdbc.update("INSERT INTO upload_checkpoint (file_sha256, upload_id, last_committed_row, committed_chunks,"
+                    + " success_count, failure_count, unchanged_count, error_report_id, error_report_length)"
+                    + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                    c.fileSha256(), c.uploadId(), c.lastCommittedRow(), c.committedChunks(), c.successCount(),
+                    c.failureCount(), c.unchangedCount(), c.errorReportId(), c.errorReportLength());
+        }
+    }
+
+    public void delete(String fileSha256) {
+        jdbc.update("DELETE FROM upload_checkpoint WHERE file_sha256 = ?", fileSha256);
+    }
+
+    public void deleteAll() {
+        jdbc.update("DELETE FROM upload_checkpoint");
+    }
+}
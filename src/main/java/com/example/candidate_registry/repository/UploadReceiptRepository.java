@@ -0,0 +1,58 @@
+package com.example.candidate_registry.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Upload receipts: the serialized result of recent uploads keyed by the SHA-256 of the
+ * uploaded file. Runs in the caller's transaction, like {@link CandidateBatchRepository}.
+ */
+@Repository
+public class UploadReceiptRepository {
+
+    public record Receipt(String resultJson, String errorReportId) {
+    }
+
+    private final JdbcTemplate jdbc;
+
+    public UploadReceiptRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public Optional<Receipt> find(String fileSha256) {
+        List<Receipt> found = jdbc.query(
+                "SELECT result_json, error_report_id FROM upload_receipt WHERE file_sha256 = ?",
+                (rs, i) -> new Receipt(rs.getString(1), rs.getString(2)), fileSha256);
+        return found.stream().findFirst();
+    }
+
+    // replaces any receipt for the same file, so the newest result wins
+    public void save(String fileSha256, String resultJson, String errorReportId) {
+        jdbc.update("DELETE FROM upload_receipt WHERE file_sha256 = ?", fileSha256);
+        jdbc.update("INSERT INTO upload_receipt (file_sha256, result_json, error_report_id) VALUES (?, ?, ?)",
+                fileSha256, resultJson, errorReportId);
+    }
+
+    public void delete(String fileSha256) {
+        jdbc.update("DELETE FROM upload_receipt WHERE file_sha256 = ?", fileSha256);
+    }
+
+    public void deleteAllExcept(String fileSha256) {
+        jdbc.update("DELETE FROM upload_receipt WHERE file_sha256 <> ?", fileSha256);
+    }
+
+    public void deleteAll() {
+        jdbc.update("DELETE FROM upload_receipt");
+    }
+
+    // keeps the newest receipts only
+    public void trim(int keep) {
+        List<Long> boundary = jdbc.queryForList(
+                "SELECT id FROM upload_receipt ORDER BY id DESC LIMIT 1 OFFSET ?", Long.class, keep);
+        if (!boundary.isEmpty())
+            jdbc.update("DELETE FROM upload_receipt WHERE id <= ?", boundary.get(0));
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.candidate_registry.service;
+
+import com.example.candidate_registry.repository.CandidateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.jpa.repository.query.EscapeCharacter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Totals for the paged list, so that a page does not cost a second query with the same
+ * three {@code LIKE '%x%'} predicates. The unfiltered total is counted once on startup and
+ * then moved by each {@link CandidatesChangedEvent}. Filtered totals are cached per filter
+ * until an upload changes a row matching it; on a miss the {@link CountMode} decides
+ * between an exact count, the search index's estimate and a count capped at
+ * {@code app.search.count.cap}.
+ */
+@Component
+public class CandidateCounts {
+
+    private static final Logger log = LoggerFactory.getLogger(CandidateCounts.class);
+
+    private static final EscapeCharacter CAPPED_ESCAPE = EscapeCharacter.of('!');
+
+    /** A list total and how it was obtained: "exact", "estimated" or "capped" (at least {@code value}). */
+    public record Total(long value, String kind) {
+
+        static Total exact(long value) {
+            return new Total(value, "exact");
+        }
+    }
+
+    private record Key(String name, String nationality, String origin) {
+    }
+
+    private record Entry(long count, long expiresAtMillis) {
+    }
+
+    private final CandidateRepository repo;
+
+    private final CandidateMetrics metrics;
+
+    private final ChangeGate gate;
+
+    // access order, so the eldest entry is the least recently used one
+    private final LinkedHashMap<Key, Entry> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    // bumped by every applied change; counts taken across a change are not stored
+    private long generation;
+
+    // rows the unfiltered list shows: LIKE '%%' does not match a NULL nationality or origin
+    private long listed = -1;
+
+    @Value("${app.search.count.cap:10000}")
+    private long cap;
+
+    @Value("${app.search.count.cache.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${app.search.count.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private final CountMode defaultMode;
+
+    public CandidateCounts(CandidateRepository repo, CandidateMetrics metrics, ChangeGate gate,
+            @Value("${app.search.count.mode:exact}") String defaultMode) {
+        this.repo = repo;
+        this.metrics = metrics;
+        this.gate = gate;
+        this.defaultMode = CountMode.parse(defaultMode, CountMode.EXACT);
+    }
+
+    /**
+     * Recounts the unfiltered total and drops the cached filtered totals. The count is
+     * taken through the {@link ChangeGate}, so no upload commit falls between it and the
+     * delta its listener applies.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long n = gate.rebuild(() -> {
+            long total = repo.countByNameContainingIgnoreCaseAndNationalityContainingIgnoreCaseAndOriginContainingIgnoreCase(
+                    "", "", "");
+            synchronized (this) {
+                generation++;
+                cache.clear();
+                listed = total;
+            }
+            return total;
+        });
+        log.info("list total rebuilt: {} candidates", n);
+    }
+
+    // before the page cache (100), so that no page is cached with a total this change made stale
+    @Order(75)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCandidatesChanged(CandidatesChangedEvent event) {
+        gate.apply(() -> applyChange(event));
+    }
+
+    private synchronized void applyChange(CandidatesChangedEvent event) {
+        generation++;
+        for (CandidatesChangedEvent.Change change : event.changes()) {
+            if (listed >= 0) {
+                if (listed(change.before()))
+                    listed--;
+                if (listed(change.after()))
+                    listed++;
+            }
+        }
+        List<String[]> changed = new ArrayList<>(event.changes().size() * 2);
+        for (CandidatesChangedEvent.Change change : event.changes()) {
+            if (change.before() != null)
+                changed.add(CandidateSearchIndex.fold(change.before()));
+            changed.add(CandidateSearchIndex.fold(change.after()));
+        }
+        Iterator<Key> it = cache.keySet().iterator();
+        while (it.hasNext()) {
+            if (matchesAny(it.next(), changed))
+                it.remove();
+        }
+    }
+
+    /**
+     * The total for the normalized filters. {@code ids} is the search index preselection
+     * for them, or {@code null} when the index cannot narrow the filters.
+     */
+    public Total total(String name, String nationality, String origin, Set<Long> ids, CountMode mode) {
+        Key key = new Key(name, nationality, origin);
+        long gen;
+        synchronized (this) {
+            if (name.isEmpty() && nationality.isEmpty() && origin.isEmpty() && listed >= 0) {
+                metrics.countListTotal("maintained");
+                return Total.exact(listed);
+            }
+            Entry e = cache.get(key);
+            if (e != null) {
+                if (e.expiresAtMillis() > System.currentTimeMillis()) {
+                    metrics.countListTotal("cache");
+                    return Total.exact(e.count());
+                }
+                cache.remove(key);
+            }
+            gen = generation;
+        }
+
+        if (mode == CountMode.ESTIMATED && ids != null) {
+            metrics.countListTotal("estimate");
+            return new Total(ids.size(), "estimated");
+        }
+        if (mode != CountMode.EXACT) {
+            metrics.countListTotal("capped");
+            long n = repo.countMatchingUpTo(pattern(name), pattern(nationality), pattern(origin), cap + 1);
+            if (n > cap)
+                return new Total(cap, "capped");
+            store(key, n, gen);
+            return Total.exact(n);
+        }
+        metrics.countListTotal("query");
+        long n = ids == null
+                ? repo.countByNameContainingIgnoreCaseAndNationalityContainingIgnoreCaseAndOriginContainingIgnoreCase(
+                        name, nationality, origin)
+                : repo.countByIdInAndNameContainingIgnoreCaseAndNationalityContainingIgnoreCaseAndOriginContainingIgnoreCase(
+                        ids, name, nationality, origin);
+        store(key, n, gen);
+        return Total.exact(n);
+    }
+
+    /** The change counter, to be read before a query whose total is passed to {@link #remember}. */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Caches an exact total seen some other way, e.g. from a last page; dropped if a change
+     * was applied since {@code generation}.
+     */
+    public void remember(String name, String nationality, String origin, long count, long generation) {
+        store(new Key(name, nationality, origin), count, generation);
+    }
+
+    public CountMode defaultMode() {
+        return defaultMode;
+    }
+
+    public synchronized void clear() {
+        generation++;
+        cache.clear();
+    }
+
+    private synchronized void store(Key key, long count, long gen) {
+        if (gen != generation || (key.name().isEmpty() && key.nationality().isEmpty() && key.origin().isEmpty()))
+            return;
+        cache.put(key, new Entry(count, System.currentTimeMillis() + ttlSeconds * 1000));
+        if (cache.size() > maxEntries) {
+            Iterator<Key> it = cache.keySet().iterator();
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static String pattern(String value) {
+        return "%" + CAPPED_ESCAPE.escape(value) + "%";
+    }
+
+    private static boolean listed(CandidateFields fields) {
+        return fields != null && fields.name() != null && fields.nationality() != null && fields.origin() != null;
+    }
+
+    // a superset of the LIKE match with the index's collation-like folding, as for the page cache
+    private static boolean matchesAny(Key key, List<String[]> changed) {
+        String[] filters = { CandidateSearchIndex.fold(key.name()), CandidateSearchIndex.fold(key.nationality()),
+                CandidateSearchIndex.fold(key.origin()) };
+        for (String[] doc : changed) {
+            if (CandidateSearchIndex.matches(doc, filters))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.candidate_registry.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The columns an upload CSV may carry: their limits and where each value goes in an
+ * {@link UploadRow}. {@link #compile} turns it into a {@link CsvRowValidator} for one file's
+ * header. A new column needs a field in UploadRow and one entry here.
+ */
+final class CandidateCsvSchema {
+
+    interface TextTarget {
+        void set(UploadRow row, String value);
+    }
+
+    interface IntTarget {
+        void set(UploadRow row, String raw, Integer value);
+    }
+
+    /** One column. Text values are normalized; integer values keep the raw text as well. */
+    static final class Column {
+        final String name;
+        final boolean required;
+        final int maxLength;
+        final int min;
+        final int max;
+        final TextTarget text;
+        final IntTarget integer;
+
+        // messages are built once here, not per row
+        final String requiredMessage;
+        final String lengthMessage;
+        final String typeMessage;
+        final String rangeMessage;
+
+        private Column(String name, boolean required, int maxLength, int min, int max, TextTarget text,
+                IntTarget integer) {
+            this.name = name;
+            this.required = required;
+            this.maxLength = maxLength;
+            this.min = min;
+            this.max = max;
+            this.text = text;
+            this.integer = integer;
+            this.requiredMessage = "REQ_MISSING: " + name + " is required";
+            this.lengthMessage = "LEN_OVER: " + name + " > " + maxLength;
+            this.typeMessage = "TYPE_MISMATCH: " + name + " must be integer";
+            this.rangeMessage = "RANGE_ERROR: " + name + " must be " + min + ".." + max;
+        }
+
+        Column required() {
+            return new Column(name, true, maxLength, min, max, text, integer);
+        }
+
+        boolean isInteger() {
+            return integer != null;
+        }
+    }
+
+    static Column text(String name, int maxLength, TextTarget target) {
+        return new Column(name, false, maxLength, 0, 0, target, null);
+    }
+
+    static Column integer(String name, int min, int max, IntTarget target) {
+        return new Column(name, false, Integer.MAX_VALUE, min, max, null, target);
+    }
+
+    static final CandidateCsvSchema CANDIDATE = new CandidateCsvSchema(List.of(
+            text("external_ref", 64, (row, v) -> row.externalRef = v).required(),
+            text("name", 100, (row, v) -> row.name = v).required(),
+            integer("age", 0, 200, (row, raw, v) -> {
+                row.ageRaw = raw;
+                row.age = v;
+            }),
+            text("nationality", 50, (row, v) -> row.nationality = v),
+            text("origin", 100, (row, v) -> row.origin = v),
+            text("notes", 2000, (row, v) -> row.notes = v)));
+
+    private final List<Column> columns;
+
+    private final Set<String> names = new LinkedHashSet<>();
+
+    private final List<String> requiredNames = new ArrayList<>();
+
+    CandidateCsvSchema(List<Column> columns) {
+        this.columns = List.copyOf(columns);
+        for (Column c : columns) {
+            names.add(c.name);
+            if (c.required)
+                requiredNames.add(c.name);
+        }
+    }
+
+    Set<String> names() {
+        return names;
+    }
+
+    List<String> requiredNames() {
+        return requiredNames;
+    }
+
+    /**
+     * Resolves the columns against a file's header (duplicates already rejected).
+     * Columns the file lacks are left null in every row.
+     */
+    CsvRowValidator compile(List<String> header) {
+        List<Column> present = new ArrayList<>();
+        List<Integer> index = new ArrayList<>();
+        for (Column c : columns) {
+            int i = header.indexOf(c.name);
+            if (i >= 0) {
+                present.add(c);
+                index.add(i);
+            }
+        }
+        return new CsvRowValidator(present, index.stream().mapToInt(Integer::intValue).toArray());
+    }
+}
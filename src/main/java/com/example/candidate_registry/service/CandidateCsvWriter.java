@@ -0,0 +1,53 @@
+package com.example.candidate_registry.service;
+
+import com.example.candidate_registry.entity.Candidate;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * The export CSV: RFC 4180, UTF-8, the upload columns in upload order, so an export can be
+ * uploaded again. Shared by the streamed and the partitioned export; it holds no state.
+ */
+final class CandidateCsvWriter {
+
+    static final CSVFormat FORMAT = CSVFormat.RFC4180;
+
+    static final CSVFormat WITH_HEADER = FORMAT.withHeader("external_ref", "name", "age", "nationality", "origin",
+            "notes");
+
+    private CandidateCsvWriter() {
+    }
+
+    /** A printer over {@code out}; closing it closes {@code out}. */
+    static CSVPrinter printer(OutputStream out, boolean header) throws IOException {
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        return new CSVPrinter(w, header ? WITH_HEADER : FORMAT);
+    }
+
+    /** Writes the header and {@code candidates}, then closes {@code out}. */
+    static void writeAll(List<Candidate> candidates, OutputStream out) throws IOException {
+        try (CSVPrinter printer = printer(out, true)) {
+            for (Candidate c : candidates)
+                printRecord(printer, c);
+            printer.flush();
+        }
+    }
+
+    static void printRecord(CSVPrinter printer, Candidate c) throws IOException {
+        printer.printRecord(
+                c.getExternalRef(),
+                c.getName(),
+                c.getAge() == null ? "" : c.getAge().toString(),
+                c.getNationality(),
+                c.getOrigin(),
+                c.getNotes());
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.candidate_registry.service;
+
+import com.example.candidate_registry.dto.CandidateFacetCounts;
+import com.example.candidate_registry.repository.CandidateFacetRow;
+import com.example.candidate_registry.repository.CandidateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.jpa.repository.query.EscapeCharacter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+
+/**
+ * Candidate counts per nationality and per origin. The unfiltered counts are held in
+ * memory, built with one GROUP BY on startup (or on demand) and then moved by delta from
+ * the before/after values of each {@link CandidatesChangedEvent}, so reading them does
+ * not touch the table. With a name filter the counts are taken from the database, over
+ * the ids the search index preselects, or by a scan while the table is small enough.
+ */
+@Component
+public class CandidateFacets {
+
+    private static final Logger log = LoggerFactory.getLogger(CandidateFacets.class);
+
+    private final CandidateRepository repo;
+
+    private final CandidateSearchIndex searchIndex;
+
+    private final ChangeGate gate;
+
+    private final Map<String, Long> nationality = new HashMap<>();
+
+    private final Map<String, Long> origin = new HashMap<>();
+
+    private long total;
+
+    @Value("${app.facets.scan-max-rows:100000}")
+    private long scanMaxRows;
+
+    public CandidateFacets(CandidateRepository repo, CandidateSearchIndex searchIndex, ChangeGate gate) {
+        this.repo = repo;
+        this.searchIndex = searchIndex;
+        this.gate = gate;
+    }
+
+    /**
+     * Recounts from the table, replacing the maintained counters. The table is read through
+     * the {@link ChangeGate}, so every change it shows has had its delta applied already and
+     * none is applied on top of it afterwards.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        gate.rebuild(() -> {
+            List<CandidateFacetRow> rows = repo.countByNationalityAndOrigin();
+            synchronized (this) {
+                nationality.clear();
+                origin.clear();
+                total = 0;
+                for (CandidateFacetRow r : rows) {
+                    nationality.merge(r.getNationality(), r.getCount(), Long::sum);
+                    origin.merge(r.getOrigin(), r.getCount(), Long::sum);
+                    total += r.getCount();
+                }
+                log.info("facet counts rebuilt: {} candidates, {} nationalities, {} origins in {} ms", total,
+                        nationality.size(), origin.size(), System.currentTimeMillis() - start);
+            }
+            return null;
+        });
+    }
+
+    @Order(50)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCandidatesChanged(CandidatesChangedEvent event) {
+        gate.apply(() -> applyChange(event));
+    }
+
+    private synchronized void applyChange(CandidatesChangedEvent event) {
+        for (CandidatesChangedEvent.Change change : event.changes()) {
+            if (change.before() == null) {
+                total++;
+            } else {
+                add(nationality, change.before().nationality(), -1);
+                add(origin, change.before().origin(), -1);
+            }
+            add(nationality, change.after().nationality(), 1);
+            add(origin, change.after().origin(), 1);
+        }
+    }
+
+    /**
+     * Counts for the candidates whose name contains {@code name} (after the usual filter
+     * normalization), at most {@code limit} buckets per facet. Throws
+     * {@link FacetFilterTooBroadException} when the index cannot narrow the filter and the
+     * table is too large to scan.
+     */
+    public CandidateFacetCounts counts(String name, int limit) {
+        String t = CsvRowValidator.normalize(name);
+        String n = t == null ? "" : t;
+        CandidateFacetCounts result = new CandidateFacetCounts();
+        result.name = n;
+        if (n.isEmpty()) {
+            synchronized (this) {
+                result.source = "counters";
+                result.total = total;
+                result.nationality = buckets(nationality, limit);
+                result.origin = buckets(origin, limit);
+            }
+            return result;
+        }
+
+        List<CandidateFacetRow> rows;
+        String pattern = "%" + EscapeCharacter.DEFAULT.escape(n) + "%";
+        Set<Long> ids = searchIndex.candidateIds(n, "", "");
+        if (ids != null) {
+            result.source = "index";
+            rows = ids.isEmpty() ? List.of() : repo.countByNationalityAndOriginForIds(ids, pattern);
+        } else {
+            long size;
+            synchronized (this) {
+                size = total;
+            }
+            if (size > scanMaxRows)
+                throw new FacetFilterTooBroadException(
+                        "Name filter '" + n + "' matches too many candidates to count; narrow it.");
+            result.source = "scan";
+            rows = repo.countByNationalityAndOriginForName(pattern);
+        }
+        Map<String, Long> nat = new HashMap<>();
+        Map<String, Long> org = new HashMap<>();
+        for (CandidateFacetRow r : rows) {
+            nat.merge(r.getNationality(), r.getCount(), Long::sum);
+            org.merge(r.getOrigin(), r.getCount(), Long::sum);
+            result.total += r.getCount();
+        }
+        result.nationality = buckets(nat, limit);
+        result.origin = buckets(org, limit);
+        return result;
+    }
+
+    private static void add(Map<String, Long> counts, String value, long delta) {
+        counts.compute(value, (k, v) -> {
+            long n = (v == null ? 0 : v) + delta;
+            return n > 0 ? n : null;
+        });
+    }
+
+    // largest first, then by value with the empty bucket last
+    private static List<CandidateFacetCounts.Bucket> buckets(Map<String, Long> counts, int limit) {
+        List<CandidateFacetCounts.Bucket> buckets = new ArrayList<>(counts.size());
+        counts.forEach((value, count) -> buckets.add(new CandidateFacetCounts.Bucket(value, count)));
+        buckets.sort(Comparator.comparingLong((CandidateFacetCounts.Bucket b) -> b.count).reversed()
+                .thenComparing(b -> b.value, Comparator.nullsLast(Comparator.naturalOrder())));
+        return limit > 0 && buckets.size() > limit ? new ArrayList<>(buckets.subList(0, limit)) : buckets;
+    }
+
+    public static class FacetFilterTooBroadException extends RuntimeException {
+        public FacetFilterTooBroadException(String msg) {
+            super(msg);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.candidate_registry.service;
+
+/**
+ * The searchable columns of a candidate, as stored.
+ */
+public record CandidateFields(String name, String nationality, String origin) {
+}
@@ -0,0 +1,136 @@
+package com.example.candidate_registry.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for uploads, list searches and exports, exposed through
+ * {@code /actuator/metrics}. Tags are kept to small fixed sets (phase, error code,
+ * filter shape), never filter values.
+ */
+@Component
+public class CandidateMetrics {
+
+    private final MeterRegistry registry;
+
+    public CandidateMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Records one finished import; {@code outcome} is "completed", "replayed", "rejected" (the
+     * file was refused: over a limit, malformed, or its keys busy) or "failed" (an error).
+     */
+    public void recordUpload(UploadProgress progress, long elapsedNanos, String outcome) {
+        Timer.builder("candidates.upload")
+                .description("CSV import duration")
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        for (UploadTimings.Phase phase : UploadTimings.Phase.values()) {
+            Timer.builder("candidates.upload.phase")
+                    .description("CSV import time per phase")
+                    .tag("phase", phase.tag())
+                    .register(registry)
+                    .record(progress.timings.nanos(phase), TimeUnit.NANOSECONDS);
+        }
+        long succeeded = progress.rowsSucceeded.get();
+        long failed = progress.rowsFailed.get();
+        Counter.builder("candidates.upload.rows").tag("result", "succeeded").register(registry).increment(succeeded);
+        Counter.builder("candidates.upload.rows").tag("result", "failed").register(registry).increment(failed);
+        if (elapsedNanos > 0 && succeeded + failed > 0) {
+            DistributionSummary.builder("candidates.upload.throughput")
+                    .description("Imported rows per second")
+                    .baseUnit("rows/s")
+                    .register(registry)
+                    .record((succeeded + failed) * 1e9 / elapsedNanos);
+        }
+    }
+
+    /** Counts one failed row by its error code (REQ_MISSING, LEN_OVER, TYPE_MISMATCH, ...). */
+    public void countUploadError(String code) {
+        Counter.builder("candidates.upload.errors")
+                .description("Failed upload rows by error code")
+                .tag("code", code)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Records one list query. {@code paging} is "offset" or "keyset", {@code cache} is
+     * "hit", "miss" or "none" (not cacheable).
+     */
+    public void recordSearch(String name, String nationality, String origin, String paging, String cache,
+            long elapsedNanos) {
+        Timer.builder("candidates.search")
+                .description("List query latency by filter shape")
+                .tag("filters", filterShape(name, nationality, origin))
+                .tag("paging", paging)
+                .tag("cache", cache)
+                .register(registry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts one list total by where it came from: "maintained" (unfiltered total kept by
+     * uploads), "cache", "query" (exact count), "capped" or "estimate" (search index).
+     */
+    public void countListTotal(String source) {
+        Counter.builder("candidates.search.count")
+                .description("List totals by source")
+                .tag("source", source)
+                .register(registry)
+                .increment();
+    }
+
+    /** Records one CSV export; {@code outcome} is "completed" or "failed". */
+    public void recordExport(long bytes, long elapsedNanos, String outcome) {
+        Timer.builder("candidates.export")
+                .description("CSV export duration")
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("candidates.export.bytes")
+                .description("CSV export size")
+                .baseUnit("bytes")
+                .register(registry)
+                .record(bytes);
+    }
+
+    /**
+     * Records the wait for a database permit (see DbBulkheadConfig); {@code outcome} is
+     * "acquired" or "rejected".
+     */
+    public void recordDbPermitWait(long elapsedNanos, boolean acquired) {
+        Timer.builder("candidates.db.bulkhead.wait")
+                .description("Wait for a database connection permit")
+                .tag("outcome", acquired ? "acquired" : "rejected")
+                .register(registry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            Counter.builder("candidates.db.bulkhead.rejected")
+                    .description("Connection requests refused after the permit wait timed out")
+                    .register(registry)
+                    .increment();
+        }
+    }
+
+    // which filters are set, e.g. "name+origin"; "none" when unfiltered
+    static String filterShape(String name, String nationality, String origin) {
+        List<String> set = new ArrayList<>(3);
+        if (!name.isEmpty())
+            set.add("name");
+        if (!nationality.isEmpty())
+            set.add("nationality");
+        if (!origin.isEmpty())
+            set.add("origin");
+        return set.isEmpty() ? "none" : String.join("+", set);
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.candidate_registry.service;
+
+import com.example.candidate_registry.dto.CandidatePage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of list pages, keyed on the normalized filters, the pageable and the
+ * result type. Entries expire after a TTL and are dropped after each upload commit when
+ * one of the changed rows matches their filters before or after the change; pages of
+ * unrelated filters stay cached.
+ */
+@Component
+public class CandidateSearchCache {
+
+    record Key(String name, String nationality, String origin, Pageable pageable, Class<?> type, CountMode count) {
+    }
+
+    private record Entry(CandidatePage<?> page, long expiresAtMillis) {
+    }
+
+    // access order, so the eldest entry is the least recently used one
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // bumped by every invalidation; a page loaded across an invalidation is not stored
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Value("${app.search.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.search.cache.max-entries:500}")
+    private int maxEntries;
+
+    @Value("${app.search.cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @SuppressWarnings("unchecked")
+    <T> CandidatePage<T> get(Key key, Supplier<CandidatePage<T>> loader) {
+        if (!enabled)
+            return loader.get();
+        long gen;
+        synchronized (this) {
+            Entry e = entries.get(key);
+            if (e != null) {
+                if (e.expiresAtMillis() > System.currentTimeMillis()) {
+                    hits.incrementAndGet();
+                    return (CandidatePage<T>) e.page();
+                }
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+            gen = generation;
+        }
+        misses.incrementAndGet();
+        CandidatePage<T> page = loader.get();
+        synchronized (this) {
+            if (gen == generation) {
+                entries.put(key, new Entry(page, System.currentTimeMillis() + ttlSeconds * 1000));
+                if (entries.size() > maxEntries) {
+                    Iterator<Key> it = entries.keySet().iterator();
+                    it.next();
+                    it.remove();
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+        return page;
+    }
+
+    // runs after the search index listener, so pages loaded after this point see the new index
+    @Order(100)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCandidatesChanged(CandidatesChangedEvent event) {
+        // fold each changed row once, not once per cached page
+        List<String[]> changed = new ArrayList<>(event.changes().size() * 2);
+        for (CandidatesChangedEvent.Change change : event.changes()) {
+            if (change.before() != null)
+                changed.add(CandidateSearchIndex.fold(change.before()));
+            changed.add(CandidateSearchIndex.fold(change.after()));
+        }
+        synchronized (this) {
+            generation++;
+            Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Key key = it.next().getKey();
+                if (matchesAny(key, changed)) {
+                    it.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        generation++;
+        invalidations.addAndGet(entries.size());
+        entries.clear();
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits.get(), misses.get(), evictions.get(), invalidations.get(), entries.size(), maxEntries);
+    }
+
+    public record Stats(long hits, long misses, long evictions, long invalidations, int size, int maxEntries) {
+    }
+
+    // a superset of the LIKE match, with the index's collation-like folding: a row with a
+    // null field never matches, but treating it as "" is safe
+    private static boolean matchesAny(Key key, List<String[]> changed) {
+        String[] filters = { CandidateSearchIndex.fold(key.name()), CandidateSearchIndex.fold(key.nationality()),
+                CandidateSearchIndex.fold(key.origin()) };
+        for (String[] doc : changed) {
+            if (CandidateSearchIndex.matches(doc, filters))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,351 @@
+package com.example.candidate_registry.service;
+
+import com.example.candidate_registry.repository.CandidateRepository;
+import com.example.candidate_registry.repository.CandidateSearchRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory n-gram index over name, nationality and origin.
+ * The list filters are substring matches ({@code LIKE '%x%'}), which no B-tree index
+ * can serve; this index turns a filter into a small set of candidate ids before the
+ * database is queried. Grams are taken over code points with n = 2, so two-character
+ * Japanese names are searchable, and values are folded the way the MySQL collation
+ * (utf8mb4_0900_ai_ci) compares them: width, accents, kana type and case are ignored,
+ * see {@link #fold}.
+ *
+ * The index is rebuilt from the table on startup, off the startup thread (searches go to
+ * the database until it is ready), and kept current from {@link CandidatesChangedEvent}s
+ * after each upload commit. Posting lists are sorted {@code long[]}s, about 8 bytes per id.
+ * A gram found in more than {@code app.search.index.max-gram-postings} rows (say "日本" in
+ * nationality) cannot narrow a search, so its list is dropped and it is no longer indexed.
+ */
+@Component
+public class CandidateSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CandidateSearchIndex.class);
+
+    static final int GRAM = 2;
+
+    private static final int FIELDS = 3; // name, nationality, origin
+
+    private final CandidateRepository repo;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // "<field index><gram>" -> ids of candidates containing the gram in that field
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    // grams dropped for being too common; not indexed again until the next rebuild
+    private final Set<String> stopped = new HashSet<>();
+
+    // id -> folded field values, to remove stale grams and to verify candidates
+    private final Map<Long, String[]> docs = new HashMap<>();
+
+    // ids written by uploads while a rebuild is running; the rebuild must not overwrite them
+    private Set<Long> touchedDuringRebuild;
+
+    private volatile boolean ready;
+
+    // one rebuild at a time; the startup rebuild runs on its own thread
+    private final ReentrantLock rebuilding = new ReentrantLock();
+
+    @Value("${app.search.index.enabled:true}")
+    private boolean enabled;
+
+    // above this many matches a plain scan is cheaper than an IN list
+    @Value("${app.search.index.max-candidates:1000}")
+    private int maxCandidates;
+
+    @Value("${app.search.index.rebuild-chunk-size:5000}")
+    private int rebuildChunkSize;
+
+    @Value("${app.search.index.max-gram-postings:50000}")
+    private int maxGramPostings;
+
+    public CandidateSearchIndex(CandidateRepository repo) {
+        this.repo = repo;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildInBackground() {
+        if (!enabled)
+            return;
+        Thread.ofPlatform().name("search-index-rebuild").daemon().start(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException ex) {
+                log.warn("search index rebuild failed; searches use the database only", ex);
+            }
+        });
+    }
+
+    /** Rebuilds the index from the table; searches bypass it until this returns. */
+    public void rebuild() {
+        if (!enabled)
+            return;
+        rebuilding.lock();
+        try {
+            rebuildLocked();
+        } finally {
+            rebuilding.unlock();
+        }
+    }
+
+    private void rebuildLocked() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            postings.clear();
+            stopped.clear();
+            docs.clear();
+            touchedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long afterId = 0;
+        while (true) {
+            List<CandidateSearchRow> rows = repo.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(rebuildChunkSize));
+            lock.writeLock().lock();
+            try {
+                for (CandidateSearchRow r : rows) {
+                    if (!touchedDuringRebuild.contains(r.getId()))
+                        put(r.getId(), new CandidateFields(r.getName(), r.getNationality(), r.getOrigin()));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (rows.size() < rebuildChunkSize)
+                break;
+            afterId = rows.get(rows.size() - 1).getId();
+        }
+
+        lock.writeLock().lock();
+        try {
+            touchedDuringRebuild = null;
+            ready = true;
+            log.info("search index rebuilt: {} candidates, {} grams ({} too common) in {} ms", docs.size(),
+                    postings.size(), stopped.size(), System.currentTimeMillis() - start);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // before the search cache invalidation, see CandidateSearchCache
+    @Order(0)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCandidatesChanged(CandidatesChangedEvent event) {
+        if (!enabled)
+            return;
+        lock.writeLock().lock();
+        try {
+            for (CandidatesChangedEvent.Change change : event.changes()) {
+                put(change.id(), change.after());
+                if (touchedDuringRebuild != null)
+                    touchedDuringRebuild.add(change.id());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of all candidates that can match the filters, or {@code null} when
+     * the index cannot narrow them: not built yet, no filter at least {@link #GRAM}
+     * characters long, or too many matches. The result is a superset of the database
+     * match, so callers still apply the LIKE filters to it.
+     */
+    public Set<Long> candidateIds(String name, String nationality, String origin) {
+        if (!enabled || !ready)
+            return null;
+        String[] filters = { fold(name), fold(nationality), fold(origin) };
+        lock.readLock().lock();
+        try {
+            // the shortest posting list of any gram of any filter bounds the result; a
+            // too-common gram narrows nothing
+            Postings smallest = null;
+            for (int f = 0; f < FIELDS; f++) {
+                for (String gram : grams(filters[f])) {
+                    String key = f + gram;
+                    if (stopped.contains(key))
+                        continue;
+                    Postings ids = postings.get(key);
+                    if (ids == null)
+                        return Set.of();
+                    if (smallest == null || ids.size() < smallest.size())
+                        smallest = ids;
+                }
+            }
+            if (smallest == null)
+                return null;
+
+            // verify against the stored values; this also applies one-character filters
+            Set<Long> result = new HashSet<>();
+            for (int i = 0; i < smallest.size(); i++) {
+                long id = smallest.get(i);
+                if (matches(docs.get(id), filters)) {
+                    if (result.size() >= maxCandidates)
+                        return null;
+                    result.add(id);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // caller holds the write lock
+    private void put(long id, CandidateFields fields) {
+        String[] old = docs.get(id);
+        if (old != null) {
+            for (int f = 0; f < FIELDS; f++) {
+                for (String gram : grams(old[f])) {
+                    Postings ids = postings.get(f + gram);
+                    if (ids != null && ids.remove(id) && ids.size() == 0)
+                        postings.remove(f + gram);
+                }
+            }
+        }
+        String[] doc = fold(fields);
+        for (int f = 0; f < FIELDS; f++) {
+            for (String gram : grams(doc[f])) {
+                String key = f + gram;
+                if (stopped.contains(key))
+                    continue;
+                Postings ids = postings.computeIfAbsent(key, k -> new Postings());
+                ids.add(id);
+                if (ids.size() > maxGramPostings) {
+                    postings.remove(key);
+                    stopped.add(key);
+                }
+            }
+        }
+        docs.put(id, doc);
+    }
+
+    /**
+     * Ids in ascending order in a growable array. Ids mostly arrive in ascending order
+     * (rebuild, inserts), so adding is usually an append.
+     */
+    static final class Postings {
+        private long[] ids = new long[4];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        long get(int i) {
+            return ids[i];
+        }
+
+        void add(long id) {
+            int at = size == 0 || ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0 && at < size)
+                return; // present
+            if (at < 0)
+                at = -at - 1;
+            if (size == ids.length)
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0)
+                return false;
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+            if (size > 16 && size < ids.length >> 2)
+                ids = Arrays.copyOf(ids, size << 1);
+            return true;
+        }
+    }
+
+    // folded name, nationality and origin of a written row, in field order
+    static String[] fold(CandidateFields fields) {
+        return new String[] { fold(fields.name()), fold(fields.nationality()), fold(fields.origin()) };
+    }
+
+    // whether folded values contain all folded filters; empty filters match anything
+    static boolean matches(String[] doc, String[] filters) {
+        if (doc == null)
+            return false;
+        for (int f = 0; f < FIELDS; f++) {
+            if (!filters[f].isEmpty() && !doc[f].contains(filters[f]))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Same folding for indexed values and filters, so that a row the database LIKE matches
+     * is never missed: the upload normalization, then NFKD (full- and half-width forms
+     * become their plain forms), combining marks dropped (accents, dakuten), katakana as
+     * hiragana, and case folded per code point. It may equate more than the collation
+     * does, never less; the LIKE filters still run on the preselected ids.
+     */
+    static String fold(String s) {
+        String t = CsvRowValidator.normalize(s);
+        if (t == null)
+            return "";
+        if (isAscii(t))
+            return t.toLowerCase(Locale.ROOT);
+        String d = Normalizer.normalize(t, Normalizer.Form.NFKD);
+        StringBuilder sb = new StringBuilder(d.length());
+        for (int i = 0; i < d.length();) {
+            int cp = d.codePointAt(i);
+            i += Character.charCount(cp);
+            int type = Character.getType(cp);
+            if (type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK
+                    || type == Character.ENCLOSING_MARK)
+                continue;
+            if (cp >= 0x30A1 && cp <= 0x30F6) // katakana ァ..ヶ -> hiragana ぁ..ゖ
+                cp -= 0x60;
+            sb.appendCodePoint(Character.toLowerCase(Character.toUpperCase(cp)));
+        }
+        return sb.toString();
+    }
+
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80)
+                return false;
+        }
+        return true;
+    }
+
+    // distinct code point n-grams of a folded value
+    static Set<String> grams(String s) {
+        int[] cps = s.codePoints().toArray();
+        if (cps.length < GRAM)
+            return Set.of();
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= cps.length; i++)
+            grams.add(new String(cps, i, GRAM));
+        return grams;
+    }
+}
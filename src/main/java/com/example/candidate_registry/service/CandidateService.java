@@ -1,64 +1,573 @@
 package com.example.candidate_registry.service;
 
+import com.example.candidate_registry.dto.CandidatePage;
 import com.example.candidate_registry.dto.CsvUploadResult;
 import com.example.candidate_registry.entity.Candidate;
+import com.example.candidate_registry.entity.CandidateContentHash;
+import com.example.candidate_registry.repository.CandidateBatchRepository;
+import com.example.candidate_registry.repository.CandidateFingerprint;
 import com.example.candidate_registry.repository.CandidateRepository;
+import com.example.candidate_registry.repository.CandidateSummary;
+import com.example.candidate_registry.repository.UploadCheckpointRepository;
+import com.example.candidate_registry.repository.UploadReceiptRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.apache.commons.csv.*;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.*;
+import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.sql.DataSource;
 import java.io.*;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPInputStream;
 
 @Service
 public class CandidateService {
 
     private final CandidateRepository repo;
 
+    private final CandidateBatchRepository batchRepo;
+
+    private final DataSource dataSource;
+
+    private final CandidateSearchIndex searchIndex;
+
+    private final CandidateSearchCache searchCache;
+
+    private final CandidateCounts counts;
+
+    private final ErrorReportStore errorReports;
+
+    private final CandidateMetrics metrics;
+
+    private final UploadReceiptRepository receipts;
+
+    private final UploadCheckpointRepository checkpoints;
+
+    private final ExternalRefLocks keyLocks;
+
+    private final ObjectMapper objectMapper;
+
+    private final ApplicationEventPublisher events;
+
+    // read-only work, routed to a replica when one is configured (see ReplicaRoutingConfig)
+    private final TransactionTemplate readOnlyTx;
+
+    private final TransactionTemplate writeTx;
+
+    @PersistenceContext
+    private EntityManager em;
+
     @Value("${app.upload.max-size-bytes:5242880}") // 5MB
     private long maxFileSize;
 
     @Value("${app.upload.max-rows:10000}")
     private int maxRows;
 
-    @Value("${app.error.report.dir:/tmp}")
-    private String errorReportDir;
+    @Value("${app.upload.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.upload.validation.chunk-size:500}")
+    private int validationChunkSize;
+
+    @Value("${app.upload.validation.max-in-flight:16}")
+    private int validationMaxInFlight;
+
+    private final ForkJoinPool validationPool;
 
-    public CandidateService(CandidateRepository repo) {
+    @Value("${app.upload.idempotency.enabled:true}")
+    private boolean idempotencyEnabled;
+
+    @Value("${app.upload.idempotency.max-receipts:1000}")
+    private int maxReceipts;
+
+    // 0: the whole import in one transaction
+    @Value("${app.upload.commit.chunk-rows:0}")
+    private int commitChunkRows;
+
+    @Value("${app.export.chunk-size:1000}")
+    private int exportChunkSize;
+
+    public CandidateService(CandidateRepository repo, CandidateBatchRepository batchRepo, DataSource dataSource,
+            CandidateSearchIndex searchIndex, CandidateSearchCache searchCache, CandidateCounts counts,
+            ErrorReportStore errorReports,
+            CandidateMetrics metrics, UploadReceiptRepository receipts, UploadCheckpointRepository checkpoints,
+            ExternalRefLocks keyLocks, ObjectMapper objectMapper,
+            ApplicationEventPublisher events, PlatformTransactionManager transactionManager,
+            @Value("${app.upload.validation.parallelism:0}") int validationParallelism) {
         this.repo = repo;
+        this.batchRepo = batchRepo;
+        this.dataSource = dataSource;
+        this.searchIndex = searchIndex;
+        this.searchCache = searchCache;
+        this.counts = counts;
+        this.errorReports = errorReports;
+        this.metrics = metrics;
+        this.receipts = receipts;
+        this.checkpoints = checkpoints;
+        this.keyLocks = keyLocks;
+        this.objectMapper = objectMapper;
+        this.events = events;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.writeTx = new TransactionTemplate(transactionManager);
+        // each lookup must see rows committed by other writers since the transaction began,
+        // or the key-collision retry in upsertRow reads InnoDB's REPEATABLE READ snapshot
+        // again and inserts the same key once more
+        this.writeTx.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.validationPool = new ForkJoinPool(validationParallelism > 0 ? validationParallelism
+                : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        validationPool.shutdownNow();
     }
 
     public Page<Candidate> search(String name, String nationality, String origin, Pageable pageable) {
-        if (name == null)
-            name = "";
-        if (nationality == null)
-            nationality = "";
-        if (origin == null)
-            origin = "";
-        return repo.findByNameContainingIgnoreCaseAndNationalityContainingIgnoreCaseAndOriginContainingIgnoreCase(
-                name, nationality, origin, pageable);
+        return search(name, nationality, origin, pageable, Candidate.class);
+    }
+
+    public <T> CandidatePage<T> search(String name, String nationality, String origin, Pageable pageable,
+            Class<T> type) {
+        return search(name, nationality, origin, pageable, type, null);
+    }
+
+    /**
+     * Searches the list as the given type: {@link Candidate} for full rows, or a projection
+     * such as {@link CandidateSummary} that selects only its columns. Pages are served from
+     * {@link CandidateSearchCache} until an upload changes a matching row. The total comes
+     * from {@link CandidateCounts} as {@code count} says ({@code null}: app.search.count.mode).
+     */
+    public <T> CandidatePage<T> search(String name, String nationality, String origin, Pageable pageable,
+            Class<T> type, CountMode count) {
+        // filters get the same trimming as uploaded values, so full-width spaces match
+        String n = filter(name);
+        String nat = filter(nationality);
+        String o = filter(origin);
+        CountMode mode = count != null ? count : counts.defaultMode();
+        long start = System.nanoTime();
+        boolean[] loaded = new boolean[1];
+        // only a cache miss opens a (read-only) transaction
+        CandidatePage<T> page = searchCache.get(new CandidateSearchCache.Key(n, nat, o, pageable, type, mode), () -> {
+            loaded[0] = true;
+            return readOnlyTx.execute(status -> load(n, nat, o, pageable, type, mode));
+        });
+        metrics.recordSearch(n, nat, o, "offset", loaded[0] ? "miss" : "hit", System.nanoTime() - start);
+        return page;
+    }
+
+    // the rows as a slice (one row more than the page, no count); a last page gives the total for free
+    private <T> CandidatePage<T> load(String name, String nationality, String origin, Pageable pageable,
+            Class<T> type, CountMode mode) {
+        long generation = counts.generation();
+        Set<Long> ids = searchIndex.candidateIds(name, nationality, origin);
+        if (ids != null && ids.isEmpty())
+            return new CandidatePage<>(List.of(), pageable, 0, "exact", false);
+        Slice<T> slice = ids != null
+                ? repo.findByIdInAndNameContainingIgnoreCaseAndNationalityContainingIgnoreCaseAndOriginContainingIgnoreCase(
+                        ids, name, nationality, origin, pageable, type)
+                : repo.findByNameContainingIgnoreCaseAndNationalityContainingIgnoreCaseAndOriginContainingIgnoreCase(
+                        name, nationality, origin, pageable, type);
+        if (!slice.hasNext() && (slice.hasContent() || pageable.getOffset() == 0)) {
+            long total = pageable.getOffset() + slice.getNumberOfElements();
+            counts.remember(name, nationality, origin, total, generation);
+            return new CandidatePage<>(slice.getContent(), pageable, total, "exact", false);
+        }
+        CandidateCounts.Total total = counts.total(name, nationality, origin, ids, mode);
+        return new CandidatePage<>(slice.getContent(), pageable, total.value(), total.kind(), slice.hasNext());
+    }
+
+    /**
+     * Keyset (seek) variant of {@link #search}: continues after the cursor's last row
+     * and runs no count query, so every page costs the same however deep it is.
+     */
+    @Transactional(readOnly = true)
+    public <T> Window<T> scroll(String name, String nationality, String origin, KeysetCursor cursor, int size,
+            Class<T> type) {
+        name = filter(name);
+        nationality = filter(nationality);
+        origin = filter(origin);
+        Sort sort = CandidateSort.of(cursor.sort(), cursor.dir());
+        long start = System.nanoTime();
+        Window<T> window;
+        Set<Long> ids = searchIndex.candidateIds(name, nationality, origin);
+        if (ids == null) {
+            window = repo.findByNameContainingIgnoreCaseAndNationalityContainingIgnoreCaseAndOriginContainingIgnoreCase(
+                    name, nationality, origin, cursor.position(), sort, Limit.of(size), type);
+        } else if (ids.isEmpty()) {
+            window = Window.from(List.of(), i -> cursor.position());
+        } else {
+            window = repo
+                    .findByIdInAndNameContainingIgnoreCaseAndNationalityContainingIgnoreCaseAndOriginContainingIgnoreCase(
+                            ids, name, nationality, origin, cursor.position(), sort, Limit.of(size), type);
+        }
+        metrics.recordSearch(name, nationality, origin, "keyset", "none", System.nanoTime() - start);
+        return window;
     }
 
-    @Transactional
+    static String filter(String s) {
+        String t = CsvRowValidator.normalize(s);
+        return t == null ? "" : t;
+    }
+
+    /**
+     * Imports a CSV upload in two passes, reading the uploaded stream exactly once.
+     * The first pass parses, validates and spills each row to a temporary CSV file,
+     * keeping only the external_ref occurrence counts in memory. The second pass reads
+     * the spill back in chunks, resolves DUP_IN_FILE and upserts the valid rows, so heap
+     * use does not grow with the size of the rows.
+     */
     public CsvUploadResult uploadCsv(MultipartFile file, String baseUrl) throws IOException {
+        return uploadCsv(file, baseUrl, false);
+    }
+
+    /**
+     * As {@link #uploadCsv(MultipartFile, String)}; with {@code force} an identical earlier
+     * upload is imported again instead of answered from its receipt.
+     */
+    public CsvUploadResult uploadCsv(MultipartFile file, String baseUrl, boolean force) throws IOException {
         if (file == null)
             throw new IllegalArgumentException("file is required");
-        if (file.getSize() > maxFileSize) {
-            CsvUploadResult err = new CsvUploadResult();
-            throw new FileSizeLimitExceededException("FILE_LIMIT", "File too large (max 5MB).");
+        checkFileSize(file.getSize());
+        try (InputStream in = file.getInputStream()) {
+            return uploadCsv(in, file.getSize(), baseUrl, force, new UploadProgress());
         }
+    }
 
-        // read bytes into reader (ensure UTF-8)
-        BufferedReader reader = new BufferedReader(
-                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8));
+    /**
+     * Imports CSV content from a stream, reporting row counts to the given progress as it goes.
+     * Used directly by background upload jobs, which spool the multipart file first.
+     *
+     * Gzip-compressed content is recognised by its magic bytes and inflated on the fly; the
+     * size limit then applies to the inflated CSV, and {@code size} only to what was sent.
+     *
+     * Unless {@code force} is given, the (inflated) content is first copied to a temporary file
+     * while its SHA-256 is computed. If the same file was imported before and no upload has
+     * changed data since, the earlier result is returned with {@code replayed} set, before any
+     * parsing or validation. Receipts only follow changes made by uploads: after rows are
+     * written some other way (SQL, a restore), a replay can describe data that is gone, so
+     * such changes should clear {@code upload_receipt} or the upload should be forced. With
+     * {@code force} the hash is computed during the first pass instead.
+     *
+     * The first pass runs outside any transaction. The second pass runs in one transaction,
+     * or with {@code app.upload.commit.chunk-rows} set, in one transaction per that many rows;
+     * each of those records a checkpoint, and a later upload of the same file after an
+     * interruption resumes after the last committed row.
+     */
+    public CsvUploadResult uploadCsv(InputStream in, long size, String baseUrl, boolean force,
+            UploadProgress progress) throws IOException {
+        checkFileSize(size);
+
+        long started = System.nanoTime();
+        progress.started();
+        String outcome = "failed";
+        File spill = Files.createTempFile("upload-", ".spill.csv").toFile();
+        File copy = null;
+        try {
+            CsvUploadResult result = new CsvUploadResult();
+            result.successCount = 0;
+            result.failureCount = 0;
+            result.unchangedCount = 0;
+            result.warnings = new ArrayList<>();
+            result.errorReport = new CsvUploadResult.ErrorReport();
+
+            InputStream content = new SizeLimitedInputStream(decompressIfGzip(in), maxFileSize);
+            MessageDigest sha256 = sha256();
+            if (idempotencyEnabled && !force) {
+                // hashed while copied aside, so a replay reads the content once and parses nothing
+                copy = Files.createTempFile("upload-", ".csv").toFile();
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(copy))) {
+                    new DigestInputStream(content, sha256).transferTo(out);
+                }
+                result.fileSha256 = HexFormat.of().formatHex(sha256.digest());
+                CsvUploadResult previous = findReceipt(result.fileSha256);
+                if (previous != null) {
+                    outcome = "replayed";
+                    return previous;
+                }
+            }
+
+            Map<String, Integer> extRefCounts = new HashMap<>();
+            Set<String> presentCols;
+            long parseStart = System.nanoTime();
+            if (copy != null) {
+                try (InputStream copied = new FileInputStream(copy)) {
+                    presentCols = parseAndSpill(copied, spill, extRefCounts, result, progress);
+                }
+            } else {
+                presentCols = parseAndSpill(new DigestInputStream(content, sha256), spill, extRefCounts, result,
+                        progress);
+                result.fileSha256 = HexFormat.of().formatHex(sha256.digest());
+            }
+            progress.timings.add(UploadTimings.Phase.PARSE, System.nanoTime() - parseStart);
+
+            long waitStart = System.nanoTime();
+            try (ExternalRefLocks.Lease keys = acquireKeys(extRefCounts.keySet())) {
+                progress.timings.add(UploadTimings.Phase.KEY_WAIT, System.nanoTime() - waitStart);
+                if (commitChunkRows > 0)
+                    importInChunks(spill, extRefCounts, presentCols, result, baseUrl, progress);
+                else
+                    importInOneTransaction(spill, extRefCounts, presentCols, result, baseUrl, progress);
+            }
+            outcome = "completed";
+            return result;
+        } catch (FileSizeLimitExceededException | ExternalRefLocks.KeysBusyException ex) {
+            outcome = "rejected";
+            throw ex;
+        } catch (RuntimeException ex) {
+            if (ex.getMessage() != null && ex.getMessage().startsWith("MALFORMED_CSV"))
+                outcome = "rejected";
+            throw ex;
+        } finally {
+            progress.finished();
+            metrics.recordUpload(progress, System.nanoTime() - started, outcome);
+            Files.deleteIfExists(spill.toPath());
+            if (copy != null)
+                Files.deleteIfExists(copy.toPath());
+        }
+    }
+
+    // held until the import has committed, so an overlapping upload starts reading after it
+    private ExternalRefLocks.Lease acquireKeys(Set<String> externalRefs) throws IOException {
+        try {
+            return keyLocks.acquire(externalRefs);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for overlapping uploads");
+        }
+    }
+
+    // second pass in a single transaction: all rows are committed together or not at all
+    private void importInOneTransaction(File spill, Map<String, Integer> extRefCounts, Set<String> presentCols,
+            CsvUploadResult result, String baseUrl, UploadProgress progress) throws IOException {
+        inTransaction(() -> {
+            try (ErrorReportStore.Draft report = errorReports.create()) {
+                try (CSVPrinter errPrinter = reportPrinter(report)) {
+                    // process rows in chunks: one lookup query and at most two JDBC batches per chunk
+                    List<UploadRow> chunk = new ArrayList<>(batchSize);
+                    readSpill(spill, extRefCounts, row -> {
+                        chunk.add(row);
+                        if (chunk.size() >= batchSize) {
+                            flushChunk(chunk, presentCols, result, errPrinter, progress);
+                            chunk.clear();
+                        }
+                    });
+                    flushChunk(chunk, presentCols, result, errPrinter, progress);
+                }
+                String reportId = publishReport(report, result, baseUrl);
+                result.committedChunks = 1;
+                result.phaseTimings = progress.timings.toMillis();
+                if (idempotencyEnabled)
+                    saveReceipt(result, reportId);
+            }
+        });
+    }
+
+    /**
+     * Second pass committing every {@code commitChunkRows} rows. Each commit also saves the
+     * checkpoint and the length of the error report so far, so a resumed import skips the
+     * committed rows and continues the report where the checkpoint left it.
+     */
+    private void importInChunks(File spill, Map<String, Integer> extRefCounts, Set<String> presentCols,
+            CsvUploadResult result, String baseUrl, UploadProgress progress) throws IOException {
+        UploadCheckpointRepository.Checkpoint checkpoint = checkpoints.find(result.fileSha256).orElse(null);
+        ErrorReportStore.Draft draft = checkpoint == null ? null
+                : errorReports.resume(checkpoint.errorReportId(), checkpoint.errorReportLength());
+        if (draft == null) {
+            // without its report part the checkpoint cannot be continued; start over, rows
+            // committed before will mostly come out unchanged
+            checkpoint = null;
+            draft = errorReports.createResumable();
+        }
+        int resumeAfter = 0;
+        result.committedChunks = 0;
+        if (checkpoint != null) {
+            resumeAfter = checkpoint.lastCommittedRow();
+            result.uploadId = checkpoint.uploadId();
+            result.resumedAfterRow = resumeAfter;
+            result.committedChunks = checkpoint.committedChunks();
+            result.successCount = checkpoint.successCount();
+            result.failureCount = checkpoint.failureCount();
+            result.unchangedCount = checkpoint.unchangedCount();
+        } else {
+            result.uploadId = UUID.randomUUID().toString();
+        }
+
+        int skip = resumeAfter;
+        try (ErrorReportStore.Draft report = draft) {
+            try (CSVPrinter errPrinter = reportPrinter(report)) {
+                List<UploadRow> group = new ArrayList<>(Math.min(commitChunkRows, maxRows));
+                readSpill(spill, extRefCounts, row -> {
+                    if (row.rowNumber <= skip)
+                        return;
+                    group.add(row);
+                    if (group.size() >= commitChunkRows) {
+                        commitGroup(group, presentCols, result, report, errPrinter, progress);
+                        group.clear();
+                    }
+                });
+                if (!group.isEmpty())
+                    commitGroup(group, presentCols, result, report, errPrinter, progress);
+            }
+            String reportId = publishReport(report, result, baseUrl);
+            result.phaseTimings = progress.timings.toMillis();
+            inTransaction(() -> {
+                checkpoints.delete(result.fileSha256);
+                if (idempotencyEnabled)
+                    saveReceipt(result, reportId);
+            });
+        }
+    }
+
+    // one commit of a chunked import: its rows, in batches, and the checkpoint after them
+    private void commitGroup(List<UploadRow> group, Set<String> presentCols, CsvUploadResult result,
+            ErrorReportStore.Draft report, CSVPrinter errPrinter, UploadProgress progress) throws IOException {
+        inTransaction(() -> {
+            int written = result.successCount - result.unchangedCount;
+            for (int i = 0; i < group.size(); i += batchSize)
+                flushChunk(group.subList(i, Math.min(group.size(), i + batchSize)), presentCols, result, errPrinter,
+                        progress);
+            errPrinter.flush();
+            result.committedChunks++;
+            // receipts of other files no longer describe the data once this commit is visible
+            if (idempotencyEnabled && result.successCount - result.unchangedCount > written)
+                receipts.deleteAllExcept(result.fileSha256);
+            checkpoints.save(new UploadCheckpointRepository.Checkpoint(result.fileSha256, result.uploadId,
+                    group.get(group.size() - 1).rowNumber, result.committedChunks, result.successCount,
+                    result.failureCount, result.unchangedCount, report.id(), report.size()));
+        });
+        report.keepOnClose();
+    }
+
+    private interface SpilledRowHandler {
+        void accept(UploadRow row) throws IOException;
+    }
+
+    // reads the spill back in row order, marking DUP_IN_FILE from the first pass counts
+    private static void readSpill(File spill, Map<String, Integer> extRefCounts, SpilledRowHandler handler)
+            throws IOException {
+        try (BufferedReader spillReader = Files.newBufferedReader(spill.toPath(), StandardCharsets.UTF_8);
+                CSVParser spilled = CSVFormat.DEFAULT.parse(spillReader)) {
+            for (CSVRecord record : spilled) {
+                UploadRow row = UploadRow.fromSpill(record);
+                if (row.externalRef != null && extRefCounts.get(ExternalRefLocks.key(row.externalRef)) > 1) {
+                    // DUP_IN_FILE check
+                    row.errorCode = UploadErrorCode.DUP_IN_FILE;
+                    row.errorMessage = "duplicate external_ref in file";
+                }
+                handler.accept(row);
+            }
+        }
+    }
+
+    private static CSVPrinter reportPrinter(ErrorReportStore.Draft report) throws IOException {
+        CSVFormat format = report.appending() ? CSVFormat.DEFAULT
+                : CSVFormat.DEFAULT.withHeader("row_number", "error_code", "error_message", "external_ref", "name",
+                        "age", "nationality", "origin", "notes");
+        return format.print(new BufferedWriter(new OutputStreamWriter(report.open(), StandardCharsets.UTF_8)));
+    }
+
+    // if there are any failures, keep the report and provide download URL;
+    // otherwise the draft is discarded on close
+    private static String publishReport(ErrorReportStore.Draft report, CsvUploadResult result, String baseUrl)
+            throws IOException {
+        if (result.failureCount == 0) {
+            result.errorReport.available = false;
+            result.errorReport.downloadUrl = null;
+            return null;
+        }
+        String reportId = report.commit();
+        result.errorReport.available = true;
+        String encoded = URLEncoder.encode(reportId, StandardCharsets.UTF_8);
+        result.errorReport.downloadUrl = (baseUrl != null ? baseUrl : "") + "/api/candidates/csv/upload/errors/"
+                + encoded;
+        return reportId;
+    }
+
+    private interface TxWork {
+        void run() throws IOException;
+    }
+
+    // runs work in a new read-write transaction, rolling back on any exception
+    private void inTransaction(TxWork work) throws IOException {
+        try {
+            writeTx.executeWithoutResult(status -> {
+                try {
+                    work.run();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    // the earlier result for the same file, or null when there is none or its error report is gone
+    private CsvUploadResult findReceipt(String fileSha256) throws IOException {
+        Optional<UploadReceiptRepository.Receipt> receipt = receipts.find(fileSha256);
+        if (receipt.isEmpty())
+            return null;
+        if (receipt.get().errorReportId() != null && errorReports.find(receipt.get().errorReportId()) == null)
+            return null;
+        CsvUploadResult previous = objectMapper.readValue(receipt.get().resultJson(), CsvUploadResult.class);
+        previous.replayed = true;
+        return previous;
+    }
 
+    /**
+     * Records the result of this upload for its file. A receipt is only valid while the
+     * data is as the upload left it, so an upload that wrote rows drops all other receipts.
+     */
+    private void saveReceipt(CsvUploadResult result, String reportId) throws IOException {
+        if (result.successCount > result.unchangedCount)
+            receipts.deleteAllExcept(result.fileSha256);
+        String json = objectMapper.writeValueAsString(result);
+        try {
+            // a concurrent upload of the same file may have saved its receipt first
+            inSavepoint(() -> receipts.save(result.fileSha256, json, reportId));
+        } catch (DuplicateKeyException ex) {
+            return;
+        }
+        receipts.trim(maxReceipts);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * First pass: streams the upload through commons-csv, checks the parsed header record,
+     * validates each row and writes it to the spill file. Returns the columns present in the file.
+     */
+    private Set<String> parseAndSpill(InputStream in, File spill, Map<String, Integer> extRefCounts,
+            CsvUploadResult result, UploadProgress progress) throws IOException {
         CSVFormat format = CSVFormat.DEFAULT
                 .withFirstRecordAsHeader()
                 .withTrim(false)
@@ -66,243 +575,415 @@ public class CandidateService {
                 .withIgnoreSurroundingSpaces(false)
                 .withAllowMissingColumnNames(false);
 
+        // read bytes into reader (ensure UTF-8)
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
         CSVParser parser;
         try {
             parser = format.parse(reader);
-        } catch (IOException ex) {
+        } catch (IOException | IllegalArgumentException ex) {
             throw new RuntimeException("MALFORMED_CSV: " + ex.getMessage(), ex);
         }
 
-        Map<String, Integer> headerMap = parser.getHeaderMap();
-        if (headerMap == null || headerMap.isEmpty()) {
+        // commons-csv keeps duplicate names in the header list but merges them in the header map
+        List<String> headers = parser.getHeaderNames();
+        if (headers.isEmpty())
             throw new RuntimeException("MALFORMED_CSV: empty header");
+        Set<String> presentCols = new HashSet<>();
+        for (String h : headers) {
+            if (h == null || h.trim().isEmpty())
+                throw new RuntimeException("MALFORMED_CSV: empty header");
+            if (!presentCols.add(h))
+                throw new RuntimeException("MALFORMED_CSV: duplicate header '" + h + "'");
         }
-
-        // header duplicates detection (commons-csv merges duplicates but we must detect
-        // duplicates by raw header list)
-        List<String> rawHeaders = new ArrayList<>();
-        try (BufferedReader rr = new BufferedReader(
-                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
-            String first = rr.readLine();
-            if (first == null)
-                throw new RuntimeException("MALFORMED_CSV: empty file");
-            String[] parts = first.split(",", -1);
-            Set<String> seen = new HashSet<>();
-            for (String h : parts) {
-                if (h == null || h.trim().isEmpty())
-                    throw new RuntimeException("MALFORMED_CSV: empty header");
-                if (!seen.add(h))
-                    throw new RuntimeException("MALFORMED_CSV: duplicate header '" + h + "'");
-            }
+        CandidateCsvSchema schema = CandidateCsvSchema.CANDIDATE;
+        for (String required : schema.requiredNames()) {
+            if (!presentCols.contains(required))
+                throw new RuntimeException("MALFORMED_CSV: missing header '" + required + "'");
         }
 
         // allowed headers
-        Set<String> allowed = Set.of("external_ref", "name", "age", "nationality", "origin", "notes");
-        List<Map<String, String>> warnings = new ArrayList<>();
-        for (String h : headerMap.keySet()) {
-            if (!allowed.contains(h)) {
+        for (String h : headers) {
+            if (!schema.names().contains(h)) {
                 Map<String, String> w = new HashMap<>();
                 w.put("type", "UNKNOWN_HEADER");
                 w.put("message", "Header '" + h + "' is ignored.");
-                warnings.add(w);
+                result.warnings.add(w);
+            }
+        }
+
+        // parsing stays on this thread; normalization and validation run on the fork-join pool,
+        // and validated chunks come back in row order to be counted and spilled
+        try (CSVPrinter spillPrinter = CSVFormat.DEFAULT.print(spill, StandardCharsets.UTF_8)) {
+            ValidationStage stage = new ValidationStage(validationPool, validationMaxInFlight,
+                    schema.compile(headers), progress.timings, validated -> {
+                        // detect DUP_IN_FILE once every row has been seen
+                        long start = System.nanoTime();
+                        for (UploadRow row : validated) {
+                            // counted by the collation's key: cnd-001 repeats CND-001
+                            if (row.externalRef != null)
+                                extRefCounts.merge(ExternalRefLocks.key(row.externalRef), 1, Integer::sum);
+                        }
+                        progress.timings.add(UploadTimings.Phase.DUPLICATE_CHECK, System.nanoTime() - start);
+                        for (UploadRow row : validated)
+                            row.spill(spillPrinter);
+                    });
+            try {
+                List<CSVRecord> chunk = new ArrayList<>(validationChunkSize);
+                for (CSVRecord record : parser) {
+                    if (++result.totalRows > maxRows)
+                        throw new FileSizeLimitExceededException("FILE_LIMIT", "Too many rows (max " + maxRows + ").");
+                    progress.rowsParsed.incrementAndGet();
+                    chunk.add(record);
+                    if (chunk.size() >= validationChunkSize) {
+                        stage.submit(chunk);
+                        chunk = new ArrayList<>(validationChunkSize);
+                    }
+                }
+                if (!chunk.isEmpty())
+                    stage.submit(chunk);
+                stage.finish();
+            } finally {
+                // a no-op after finish(); on the row limit, a parse error or a failed spill it
+                // stops the validation tasks still queued on the shared pool
+                stage.cancel();
             }
+        } catch (UncheckedIOException ex) {
+            throw new RuntimeException("MALFORMED_CSV: " + ex.getMessage(), ex);
         }
+        return presentCols;
+    }
 
-        List<CSVRecord> records = parser.getRecords();
-        if (records.size() > maxRows) {
-            throw new RuntimeException("FILE_LIMIT: too many rows");
+    private void checkFileSize(long size) {
+        if (size > maxFileSize) {
+            throw new FileSizeLimitExceededException("FILE_LIMIT", "File too large (max 5MB).");
         }
+    }
 
-        CsvUploadResult result = new CsvUploadResult();
-        result.totalRows = records.size();
-        result.successCount = 0;
-        result.failureCount = 0;
-        result.warnings = warnings;
-        result.errorReport = new CsvUploadResult.ErrorReport();
-        List<String[]> errorRows = new ArrayList<>();
+    // gzip is told by its magic bytes, so .csv.gz files, gzip parts and gzip request bodies all work
+    static InputStream decompressIfGzip(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, 8192);
+        buffered.mark(2);
+        int b1 = buffered.read();
+        int b2 = buffered.read();
+        buffered.reset();
+        if (b1 == 0x1f && b2 == 0x8b)
+            return new GZIPInputStream(buffered, 8192);
+        return buffered;
+    }
 
-        // detect DUP_IN_FILE
-        Map<String, List<Integer>> extRefLines = new HashMap<>();
-        for (int i = 0; i < records.size(); i++) {
-            CSVRecord r = records.get(i);
-            String raw = r.get("external_ref") == null ? "" : r.get("external_ref");
-            String norm = normalize(raw);
-            if (norm != null && !norm.isEmpty()) {
-                extRefLines.computeIfAbsent(norm, k -> new ArrayList<>()).add(i + 2); // +2: header + 1-based
-            }
+    // enforces the size limit on the content as parsed, which for gzip is the inflated CSV
+    private static class SizeLimitedInputStream extends FilterInputStream {
+        private final long limit;
+        private long count;
+
+        SizeLimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
         }
-        Set<String> dupInFile = new HashSet<>();
-        for (Map.Entry<String, List<Integer>> e : extRefLines.entrySet()) {
-            if (e.getValue().size() > 1)
-                dupInFile.add(e.getKey());
-        }
-
-        // store which columns present in CSV
-        Set<String> presentCols = new HashSet<>(headerMap.keySet());
-
-        DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
-        String ts = LocalDateTime.now().format(dtf);
-        String errFileName = "upload-errors-" + ts + ".csv";
-        File errFile = new File(errorReportDir, errFileName);
-        try (BufferedWriter bw = new BufferedWriter(
-                new OutputStreamWriter(new FileOutputStream(errFile), StandardCharsets.UTF_8));
-                CSVPrinter errPrinter = CSVFormat.DEFAULT.withHeader("row_number", "error_code", "error_message",
-                        "external_ref", "name", "age", "nationality", "origin", "notes").print(bw)) {
-
-            // process rows
-            for (int i = 0; i < records.size(); i++) {
-                CSVRecord record = records.get(i);
-                int rowNumber = (int) record.getRecordNumber() + 0; // parser already uses 1-based after header
-                String externalRefRaw = record.isMapped("external_ref") ? record.get("external_ref") : "";
-                String externalRef = normalize(externalRefRaw);
-                String name = record.isMapped("name") ? normalize(record.get("name")) : null;
-                String ageRaw = record.isMapped("age") ? record.get("age") : null;
-                String nationality = record.isMapped("nationality") ? normalize(record.get("nationality")) : null;
-                String origin = record.isMapped("origin") ? normalize(record.get("origin")) : null;
-                String notes = record.isMapped("notes") ? normalize(record.get("notes")) : null;
-
-                // DUP_IN_FILE check
-                if (externalRef != null && dupInFile.contains(externalRef)) {
-                    result.failureCount++;
-                    errPrinter.printRecord(rowNumber, "DUP_IN_FILE", "duplicate external_ref in file", externalRef,
-                            name, ageRaw, nationality, origin, notes);
-                    continue;
-                }
 
-                // validation
-                List<String> errs = new ArrayList<>();
-                if (externalRef == null || externalRef.isEmpty())
-                    errs.add("REQ_MISSING: external_ref is required");
-                if (name == null || name.isEmpty())
-                    errs.add("REQ_MISSING: name is required");
-                if (externalRef != null && externalRef.length() > 64)
-                    errs.add("LEN_OVER: external_ref > 64");
-                if (name != null && name.length() > 100)
-                    errs.add("LEN_OVER: name > 100");
-                if (nationality != null && nationality.length() > 50)
-                    errs.add("LEN_OVER: nationality > 50");
-                if (origin != null && origin.length() > 100)
-                    errs.add("LEN_OVER: origin > 100");
-                if (notes != null && notes.length() > 2000)
-                    errs.add("LEN_OVER: notes > 2000");
-
-                Integer age = null;
-                if (ageRaw != null) {
-                    String t = ageRaw.trim();
-                    if (t.isEmpty()) {
-                        age = null;
-                    } else {
-                        try {
-                            double maybe = Double.parseDouble(t);
-                            if (t.contains(".") || t.contains(",")) {
-                                errs.add("TYPE_MISMATCH: age must be integer");
-                            } else {
-                                age = Integer.parseInt(t);
-                                if (age < 0 || age > 200)
-                                    errs.add("RANGE_ERROR: age must be 0..200");
-                            }
-                        } catch (NumberFormatException ex) {
-                            errs.add("TYPE_MISMATCH: age must be integer");
-                        }
-                    }
-                }
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0)
+                counted(1);
+            return b;
+        }
 
-                if (!errs.isEmpty()) {
-                    result.failureCount++;
-                    String errMsg = String.join("; ", errs);
-                    errPrinter.printRecord(rowNumber, errs.get(0).split(":")[0], errMsg, externalRef, name, ageRaw,
-                            nationality, origin, notes);
-                    continue;
-                }
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0)
+                counted(n);
+            return n;
+        }
 
-                // upsert: external_ref -> update only columns present in CSV
-                try {
-                    Optional<Candidate> opt = externalRef == null ? Optional.empty()
-                            : repo.findByExternalRef(externalRef);
-                    Candidate c;
-                    if (opt.isPresent()) {
-                        c = opt.get();
-                        // only override specified columns
-                        if (presentCols.contains("name"))
-                            c.setName(name == null ? c.getName() : name);
-                        if (presentCols.contains("age"))
-                            c.setAge(age);
-                        if (presentCols.contains("nationality"))
-                            c.setNationality(nationality);
-                        if (presentCols.contains("origin"))
-                            c.setOrigin(origin);
-                        if (presentCols.contains("notes"))
-                            c.setNotes(notes);
-                    } else {
-                        c = new Candidate();
-                        c.setExternalRef(externalRef);
-                        c.setName(name);
-                        c.setAge(age);
-                        c.setNationality(nationality);
-                        c.setOrigin(origin);
-                        c.setNotes(notes);
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            counted(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void counted(long n) {
+            count += n;
+            if (count > limit)
+                throw new FileSizeLimitExceededException("FILE_LIMIT", "File too large (max 5MB).");
+        }
+    }
+
+    /**
+     * Persists the valid rows of a chunk and reports every row of it in row order.
+     * The whole chunk is written under one savepoint; if a batch fails, the chunk is
+     * replayed one row per savepoint so that only the offending rows are marked UNKNOWN_ERROR.
+     */
+    private void flushChunk(List<UploadRow> chunk, Set<String> presentCols, CsvUploadResult result,
+            CSVPrinter errPrinter, UploadProgress progress) throws IOException {
+        List<UploadRow> valid = new ArrayList<>(chunk.size());
+        for (UploadRow row : chunk) {
+            if (row.errorCode == null)
+                valid.add(row);
+        }
+        if (!valid.isEmpty()) {
+            try {
+                inSavepoint(() -> upsertRows(valid, presentCols, progress.timings));
+            } catch (RuntimeException ex) {
+                em.clear();
+                for (UploadRow row : valid) {
+                    try {
+                        upsertRow(row, presentCols, progress.timings);
+                    } catch (RuntimeException rowEx) {
+                        row.errorCode = UploadErrorCode.UNKNOWN_ERROR;
+                        row.errorMessage = rowEx.getMessage();
                     }
-                    repo.save(c);
-                    result.successCount++;
-                } catch (Exception ex) {
-                    result.failureCount++;
-                    errPrinter.printRecord(rowNumber, "UNKNOWN_ERROR", ex.getMessage(), externalRef, name, ageRaw,
-                            nationality, origin, notes);
                 }
             }
+        }
+        // drop the read-only lookups so the persistence context stays bounded by one chunk
+        em.clear();
+
+        for (UploadRow row : chunk) {
+            if (row.errorCode == null) {
+                result.successCount++;
+                if (row.unchanged)
+                    result.unchangedCount++;
+                progress.rowsSucceeded.incrementAndGet();
+            } else {
+                result.failureCount++;
+                progress.rowsFailed.incrementAndGet();
+                metrics.countUploadError(row.errorCode.name());
+                long start = System.nanoTime();
+                errPrinter.printRecord(row.rowNumber, row.errorCode, row.errorMessage, row.externalRef, row.name,
+                        row.ageRaw, row.nationality, row.origin, row.notes);
+                progress.timings.add(UploadTimings.Phase.ERROR_REPORT, System.nanoTime() - start);
+            }
+        }
+    }
 
-            errPrinter.flush();
+    /**
+     * Writes a single row under its own savepoint. A writer that is not coordinated through
+     * ExternalRefLocks (another instance, a manual fix) may insert the same external_ref
+     * between the lookup and the insert; the row is then looked up again and written as an update.
+     * The upload transaction runs at READ COMMITTED, so the second lookup sees that row.
+     */
+    private void upsertRow(UploadRow row, Set<String> presentCols, UploadTimings timings) {
+        for (int attempt = 1;; attempt++) {
+            try {
+                inSavepoint(() -> upsertRows(List.of(row), presentCols, timings));
+                return;
+            } catch (DuplicateKeyException ex) {
+                em.clear();
+                if (attempt >= KEY_COLLISION_ATTEMPTS)
+                    throw ex;
+            }
         }
+    }
 
-        // if there are any failures, provide download URL
-        if (result.failureCount > 0) {
-            result.errorReport.available = true;
-            String encoded = URLEncoder.encode(errFileName, StandardCharsets.UTF_8);
-            String downloadUrl = (baseUrl != null ? baseUrl : "") + "/api/candidates/csv/upload/errors/" + encoded;
-            result.errorReport.downloadUrl = downloadUrl;
-        } else {
-            result.errorReport.available = false;
-            result.errorReport.downloadUrl = null;
-            // delete empty error file
-            if (errFile.exists() && errFile.length() == 0)
-                errFile.delete();
+    private static final int KEY_COLLISION_ATTEMPTS = 3;
+
+    // JpaTransactionManager offers no nested transactions with Hibernate, so use a JDBC
+    // savepoint on the connection bound to the surrounding upload transaction
+    private void inSavepoint(Runnable work) {
+        Connection con = DataSourceUtils.getConnection(dataSource);
+        Savepoint sp;
+        try {
+            sp = con.setSavepoint();
+        } catch (SQLException ex) {
+            throw new IllegalStateException("could not create savepoint", ex);
         }
+        try {
+            work.run();
+        } catch (RuntimeException ex) {
+            try {
+                con.rollback(sp);
+            } catch (SQLException rollbackEx) {
+                ex.addSuppressed(rollbackEx);
+            }
+            throw ex;
+        }
+        try {
+            con.releaseSavepoint(sp);
+        } catch (SQLException ex) {
+            throw new IllegalStateException("could not release savepoint", ex);
+        }
+    }
 
-        return result;
+    private static final List<String> CONTENT_COLUMNS = List.of("name", "age", "nationality", "origin", "notes");
+
+    /**
+     * upsert: external_ref -> update only columns present in CSV.
+     * Existing rows are looked up without notes. When the file carries every content column,
+     * the incoming row is the new content, so its hash is compared with the stored
+     * content_hash directly; otherwise the full rows are read and merged first. Rows whose
+     * hash is unchanged are not written and are marked {@code unchanged}.
+     */
+    private void upsertRows(List<UploadRow> rows, Set<String> presentCols, UploadTimings timings) {
+        List<String> keys = new ArrayList<>(rows.size());
+        for (UploadRow row : rows)
+            keys.add(row.externalRef);
+        boolean fullRows = presentCols.containsAll(CONTENT_COLUMNS);
+        long lookupStart = System.nanoTime();
+        // the IN query matches under the column collation, so a stored CND-001 answers cnd-001;
+        // exact spellings first, then the collation key
+        Map<String, CandidateFingerprint> existing = new HashMap<>();
+        Map<String, CandidateFingerprint> existingByKey = new HashMap<>();
+        for (CandidateFingerprint f : repo.findAllByExternalRefIn(keys)) {
+            existing.put(f.getExternalRef(), f);
+            existingByKey.putIfAbsent(ExternalRefLocks.key(f.getExternalRef()), f);
+        }
+        Map<Long, Candidate> current = new HashMap<>();
+        if (!fullRows && !existing.isEmpty()) {
+            List<Long> ids = new ArrayList<>(existing.size());
+            for (CandidateFingerprint f : existing.values())
+                ids.add(f.getId());
+            for (Candidate c : repo.findAllByIdIn(ids))
+                current.put(c.getId(), c);
+        }
+        timings.add(UploadTimings.Phase.LOOKUP, System.nanoTime() - lookupStart);
+
+        List<Candidate> inserts = new ArrayList<>();
+        List<Candidate> updates = new ArrayList<>();
+        List<CandidateFields> updatedBefore = new ArrayList<>();
+        for (UploadRow row : rows) {
+            row.unchanged = false;
+            CandidateFingerprint f = existing.get(row.externalRef);
+            if (f == null)
+                f = existingByKey.get(ExternalRefLocks.key(row.externalRef));
+            Candidate c;
+            if (f != null) {
+                if (fullRows) {
+                    c = new Candidate();
+                    c.setId(f.getId());
+                    // the stored spelling stays; updates do not rewrite external_ref
+                    c.setExternalRef(f.getExternalRef());
+                    c.setName(row.name);
+                    c.setAge(row.age);
+                    c.setNationality(row.nationality);
+                    c.setOrigin(row.origin);
+                    c.setNotes(row.notes);
+                } else {
+                    c = current.get(f.getId());
+                    // only override specified columns
+                    if (presentCols.contains("name"))
+                        c.setName(row.name == null ? c.getName() : row.name);
+                    if (presentCols.contains("age"))
+                        c.setAge(row.age);
+                    if (presentCols.contains("nationality"))
+                        c.setNationality(row.nationality);
+                    if (presentCols.contains("origin"))
+                        c.setOrigin(row.origin);
+                    if (presentCols.contains("notes"))
+                        c.setNotes(row.notes);
+                }
+                c.setContentHash(CandidateContentHash.of(c));
+                if (c.getContentHash().equals(f.getContentHash())) {
+                    // no write, so updated_at stays as it is
+                    row.unchanged = true;
+                    continue;
+                }
+                updatedBefore.add(new CandidateFields(f.getName(), f.getNationality(), f.getOrigin()));
+                updates.add(c);
+            } else {
+                c = new Candidate();
+                c.setExternalRef(row.externalRef);
+                c.setName(row.name);
+                c.setAge(row.age);
+                c.setNationality(row.nationality);
+                c.setOrigin(row.origin);
+                c.setNotes(row.notes);
+                c.setContentHash(CandidateContentHash.of(c));
+                inserts.add(c);
+            }
+        }
+        long saveStart = System.nanoTime();
+        batchRepo.insertAll(inserts);
+        batchRepo.updateAll(updates);
+        timings.add(UploadTimings.Phase.SAVE, System.nanoTime() - saveStart);
+
+        List<CandidatesChangedEvent.Change> changes = new ArrayList<>(inserts.size() + updates.size());
+        for (Candidate c : inserts)
+            changes.add(new CandidatesChangedEvent.Change(c.getId(), null, fieldsOf(c)));
+        for (int i = 0; i < updates.size(); i++) {
+            Candidate c = updates.get(i);
+            changes.add(new CandidatesChangedEvent.Change(c.getId(), updatedBefore.get(i), fieldsOf(c)));
+        }
+        if (!changes.isEmpty())
+            events.publishEvent(new CandidatesChangedEvent(changes));
     }
 
-    private String normalize(String s) {
-        if (s == null)
-            return null;
-        // trim both half-width and full-width spaces, and trim newlines
-        String t = s.replace("\u3000", " ").trim();
-        if (t.isEmpty())
-            return null;
-        return t;
+    private static CandidateFields fieldsOf(Candidate c) {
+        return new CandidateFields(c.getName(), c.getNationality(), c.getOrigin());
     }
 
-    public void writeCsvAll(List<Candidate> candidates, OutputStream os) throws IOException {
-        try (BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
-                CSVPrinter printer = CSVFormat.RFC4180
-                        .withHeader("external_ref", "name", "age", "nationality", "origin", "notes").print(bw)) {
-            for (Candidate c : candidates) {
-                printer.printRecord(
-                        c.getExternalRef(),
-                        c.getName(),
-                        c.getAge() == null ? "" : c.getAge().toString(),
-                        c.getNationality(),
-                        c.getOrigin(),
-                        c.getNotes());
+    /**
+     * Streams every candidate matching the list filters as CSV, reading the table in
+     * id-ordered keyset chunks. Each chunk is flushed to the client and detached from
+     * the persistence context before the next one is read, so memory and time to
+     * first byte do not depend on the size of the result.
+     */
+    @Transactional(readOnly = true)
+    public void exportCsv(String name, String nationality, String origin, OutputStream os) throws IOException {
+        name = filter(name);
+        nationality = filter(nationality);
+        origin = filter(origin);
+        Pageable chunk = PageRequest.of(0, exportChunkSize, Sort.by("id"));
+        long started = System.nanoTime();
+        CountingOutputStream counted = new CountingOutputStream(os);
+        String outcome = "failed";
+        try (CSVPrinter printer = CandidateCsvWriter.printer(counted, true)) {
+            long afterId = 0;
+            while (true) {
+                List<Candidate> candidates = repo
+                        .findByIdGreaterThanAndNameContainingIgnoreCaseAndNationalityContainingIgnoreCaseAndOriginContainingIgnoreCase(
+                                afterId, name, nationality, origin, chunk);
+                for (Candidate c : candidates)
+                    CandidateCsvWriter.printRecord(printer, c);
+                printer.flush();
+                // the export may run inside an open-in-view EntityManager; keep it empty
+                em.clear();
+                if (candidates.size() < exportChunkSize)
+                    break;
+                afterId = candidates.get(candidates.size() - 1).getId();
             }
-            printer.flush();
+            outcome = "completed";
+        } finally {
+            metrics.recordExport(counted.count, System.nanoTime() - started, outcome);
         }
     }
 
-    public File getErrorReportFile(String filename) {
-        File f = new File(errorReportDir, filename);
-        if (f.exists())
-            return f;
-        return null;
+    // counts the bytes written to the client for the export size metric
+    static class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    public void writeCsvAll(List<Candidate> candidates, OutputStream os) throws IOException {
+        CandidateCsvWriter.writeAll(candidates, os);
+    }
+
+    // detail fetch, the only read path that needs notes besides the export
+    @Transactional(readOnly = true)
+    public Optional<Candidate> findByExternalRef(String externalRef) {
+        return repo.findByExternalRef(externalRef);
     }
 
     // custom exception for file size
@@ -0,0 +1,38 @@
+package com.example.candidate_registry.service;
+
+import org.springframework.data.domain.Sort;
+
+import java.util.Map;
+
+/**
+ * Maps the list's sort parameter (CSV column names) to entity properties.
+ * Every sort ends with {@code id} so that the order is total, which keyset paging needs.
+ */
+public final class CandidateSort {
+
+    public static final String DEFAULT_COLUMN = "external_ref";
+
+    private static final Map<String, String> PROPERTIES = Map.of(
+            "external_ref", "externalRef",
+            "name", "name",
+            "age", "age",
+            "nationality", "nationality",
+            "origin", "origin");
+
+    private CandidateSort() {
+    }
+
+    // unknown columns fall back to external_ref instead of failing the query
+    public static Sort of(String column, String dir) {
+        Sort.Direction d = "desc".equalsIgnoreCase(dir) ? Sort.Direction.DESC : Sort.Direction.ASC;
+        String property = PROPERTIES.getOrDefault(column, PROPERTIES.get(DEFAULT_COLUMN));
+        return Sort.by(d, property).and(Sort.by(d, "id"));
+    }
+
+    // keyset paging compares sort keys with > and <, which skips rows whose key is NULL.
+    // age is the only sortable column that is NULL in list results: the nationality and
+    // origin filters are LIKE predicates and never match NULL.
+    public static boolean supportsKeyset(String column) {
+        return !"age".equals(column);
+    }
+}
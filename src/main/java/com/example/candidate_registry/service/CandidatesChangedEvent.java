@@ -0,0 +1,16 @@
+package com.example.candidate_registry.service;
+
+import java.util.List;
+
+/**
+ * Published by the CSV upload for every chunk of inserted or updated candidates.
+ * Listeners that keep derived state (search index, caches) react after the commit.
+ */
+public record CandidatesChangedEvent(List<Change> changes) {
+
+    /**
+     * One written row; {@code before} is null for an insert.
+     */
+    public record Change(long id, CandidateFields before, CandidateFields after) {
+    }
+}
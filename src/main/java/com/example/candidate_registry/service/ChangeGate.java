@@ -0,0 +1,79 @@
+package com.example.candidate_registry.service;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the table reads of a rebuild (list total, facet counters) apart from upload
+ * commits. A transaction that published a {@link CandidatesChangedEvent} holds the gate
+ * shared from just before its commit until its after-commit listeners have run; a
+ * rebuild reads with the gate held exclusively. Its read therefore sees every committed
+ * change already applied to the maintained state and none still to be applied, so the
+ * listeners' deltas are never counted twice or missed. Uploads only wait at their commit,
+ * for as long as the rebuild's query takes.
+ */
+@Component
+public class ChangeGate {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Holds the gate across the commit of the publishing transaction, once per transaction. */
+    @EventListener
+    public void onCandidatesChanged(CandidatesChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(this))
+            return;
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean held;
+
+            // released after the after-commit listeners, which run in order before it
+            @Override
+            public int getOrder() {
+                return Ordered.LOWEST_PRECEDENCE;
+            }
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                lock.readLock().lock();
+                held = true;
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ChangeGate.this);
+                if (held)
+                    lock.readLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Applies a change under the gate. The publishing transaction already holds it and
+     * re-enters; an event published outside a transaction waits for a running rebuild.
+     */
+    public void apply(Runnable change) {
+        lock.readLock().lock();
+        try {
+            change.run();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Runs a rebuild's read and store with no change committing or being applied meanwhile. */
+    public <T> T rebuild(Supplier<T> read) {
+        lock.writeLock().lock();
+        try {
+            return read.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
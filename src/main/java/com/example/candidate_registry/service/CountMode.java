@@ -0,0 +1,27 @@
+package com.example.candidate_registry.service;
+
+import java.util.Locale;
+
+/**
+ * How the list total is obtained when it is not already known (the unfiltered total is
+ * maintained, filtered totals are cached until an upload changes a matching row).
+ */
+public enum CountMode {
+    /** count the matching rows */
+    EXACT,
+    /** the size of the search index preselection, an upper bound; capped when the index cannot narrow */
+    ESTIMATED,
+    /** count at most {@code app.search.count.cap} rows and report "cap+" beyond that */
+    CAPPED;
+
+    /** Parses a request parameter; {@code null} or empty gives the default, unknown values fail. */
+    public static CountMode parse(String value, CountMode defaultMode) {
+        if (value == null || value.isEmpty())
+            return defaultMode;
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("count must be one of exact, estimated, capped");
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.candidate_registry.service;
+
+import org.apache.commons.csv.CSVRecord;
+
+import java.util.List;
+
+/**
+ * Per-row normalization and validation of an uploaded CSV record, compiled from
+ * {@link CandidateCsvSchema} for one file's header so that values are read by index.
+ * Immutable, so rows can be validated on any thread. A clean row allocates only the
+ * {@link UploadRow}, the boxed age and any value that needed trimming.
+ *
+ * The error code of a row is that of its first failing check; required columns are
+ * checked first, then lengths, then integer types and ranges.
+ */
+final class CsvRowValidator {
+
+    private final CandidateCsvSchema.Column[] columns;
+
+    private final int[] index;
+
+    CsvRowValidator(List<CandidateCsvSchema.Column> columns, int[] index) {
+        this.columns = columns.toArray(new CandidateCsvSchema.Column[0]);
+        this.index = index;
+    }
+
+    UploadRow read(CSVRecord record) {
+        UploadRow row = new UploadRow();
+        row.rowNumber = (int) record.getRecordNumber(); // parser already uses 1-based after header
+        String[] values = new String[columns.length];
+        for (int c = 0; c < columns.length; c++) {
+            int i = index[c];
+            if (i >= record.size())
+                throw new IllegalArgumentException(String.format(
+                        "Index for header '%s' is %d but CSVRecord only has %d values!", columns[c].name, i,
+                        record.size()));
+            CandidateCsvSchema.Column col = columns[c];
+            values[c] = col.isInteger() ? record.get(i) : normalize(record.get(i));
+        }
+
+        for (int c = 0; c < columns.length; c++) {
+            CandidateCsvSchema.Column col = columns[c];
+            if (col.required && (col.isInteger() ? isBlank(values[c]) : values[c] == null))
+                error(row, UploadErrorCode.REQ_MISSING, col.requiredMessage);
+        }
+        for (int c = 0; c < columns.length; c++) {
+            CandidateCsvSchema.Column col = columns[c];
+            if (!col.isInteger()) {
+                if (values[c] != null && values[c].length() > col.maxLength)
+                    error(row, UploadErrorCode.LEN_OVER, col.lengthMessage);
+                col.text.set(row, values[c]);
+            }
+        }
+        for (int c = 0; c < columns.length; c++) {
+            CandidateCsvSchema.Column col = columns[c];
+            if (col.isInteger())
+                col.integer.set(row, values[c], parseInteger(row, col, values[c]));
+        }
+        return row;
+    }
+
+    // ASCII digits with an optional sign, surrounded by any whitespace; blank is no value
+    private static Integer parseInteger(UploadRow row, CandidateCsvSchema.Column col, String raw) {
+        if (raw == null)
+            return null;
+        int start = 0;
+        int end = raw.length();
+        while (start < end && raw.charAt(start) <= ' ')
+            start++;
+        while (end > start && raw.charAt(end - 1) <= ' ')
+            end--;
+        if (start == end)
+            return null;
+        boolean negative = false;
+        char first = raw.charAt(start);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            start++;
+        }
+        if (start == end) {
+            error(row, UploadErrorCode.TYPE_MISMATCH, col.typeMessage);
+            return null;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            char ch = raw.charAt(i);
+            if (ch < '0' || ch > '9') {
+                error(row, UploadErrorCode.TYPE_MISMATCH, col.typeMessage);
+                return null;
+            }
+            value = value * 10 + (ch - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                error(row, UploadErrorCode.TYPE_MISMATCH, col.typeMessage);
+                return null;
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            error(row, UploadErrorCode.TYPE_MISMATCH, col.typeMessage);
+            return null;
+        }
+        if (value < col.min || value > col.max)
+            error(row, UploadErrorCode.RANGE_ERROR, col.rangeMessage);
+        return (int) value;
+    }
+
+    private static void error(UploadRow row, UploadErrorCode code, String message) {
+        if (row.errorCode == null) {
+            row.errorCode = code;
+            row.errorMessage = message;
+        } else {
+            row.errorMessage = row.errorMessage + "; " + message;
+        }
+    }
+
+    private static boolean isBlank(String s) {
+        if (s == null)
+            return true;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) > ' ')
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Trims half-width and full-width spaces and newlines; blank gives null. Full-width
+     * spaces inside the value become half-width. Returns the value itself when it needs
+     * no change.
+     */
+    static String normalize(String s) {
+        if (s == null)
+            return null;
+        int start = 0;
+        int end = s.length();
+        while (start < end && isSpace(s.charAt(start)))
+            start++;
+        while (end > start && isSpace(s.charAt(end - 1)))
+            end--;
+        if (start == end)
+            return null;
+        String t = s.substring(start, end);
+        return t.indexOf('\u3000') >= 0 ? t.replace('\u3000', ' ') : t;
+    }
+
+    private static boolean isSpace(char ch) {
+        return ch <= ' ' || ch == '\u3000';
+    }
+}
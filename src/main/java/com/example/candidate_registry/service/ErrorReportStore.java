@@ -0,0 +1,294 @@
+package com.example.candidate_registry.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Upload error reports on disk. Each report gets a unique id
+ * ({@code upload-errors-yyyyMMdd-HHmmss-<random>.csv}), is optionally stored gzip-compressed
+ * as {@code <id>.gz}, and is evicted once it is older than the retention period or the
+ * reports together exceed the size budget, oldest first.
+ */
+@Component
+public class ErrorReportStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ErrorReportStore.class);
+
+    private static final String PREFIX = "upload-errors-";
+
+    private static final Pattern ID = Pattern.compile("upload-errors-[0-9]{8}-[0-9]{6}(-[0-9a-f]{32})?\\.csv");
+
+    private static final DateTimeFormatter TS = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    @Value("${app.error.report.dir:/tmp}")
+    private String dir;
+
+    @Value("${app.error.report.gzip:true}")
+    private boolean gzip;
+
+    @Value("${app.error.report.max-total-bytes:104857600}") // 100MB
+    private long maxTotalBytes;
+
+    @Value("${app.error.report.retention-hours:168}")
+    private long retentionHours;
+
+    /**
+     * A report being written. It stays a hidden part file until {@link #commit()};
+     * closing an uncommitted draft deletes it unless it was kept for resuming.
+     * Resumable drafts are written plain, so that they can be cut back to the length
+     * recorded at an import checkpoint, and are compressed on commit.
+     */
+    public class Draft implements Closeable {
+
+        private final String id;
+
+        private final Path part;
+
+        private final boolean resumable;
+
+        private final long resumeAt;
+
+        private boolean committed;
+
+        private boolean keep;
+
+        private Draft(String id, boolean resumable, long resumeAt) {
+            this.id = id;
+            this.part = Paths.get(dir, "." + id + ".part");
+            this.resumable = resumable;
+            this.resumeAt = resumeAt;
+        }
+
+        public String id() {
+            return id;
+        }
+
+        /** Whether this draft continues an earlier part, which already has the CSV header. */
+        public boolean appending() {
+            return resumeAt > 0;
+        }
+
+        /** The stream to write the CSV to; compressed on the way when gzip storage is on. */
+        public OutputStream open() throws IOException {
+            if (resumable) {
+                try (FileChannel ch = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                    ch.truncate(resumeAt);
+                }
+                return new BufferedOutputStream(Files.newOutputStream(part, StandardOpenOption.APPEND));
+            }
+            OutputStream out = new BufferedOutputStream(Files.newOutputStream(part, StandardOpenOption.CREATE_NEW));
+            return gzip ? new GZIPOutputStream(out, 8192) : out;
+        }
+
+        /** Bytes written so far; only meaningful for resumable drafts, after a flush. */
+        public long size() throws IOException {
+            return Files.size(part);
+        }
+
+        /** Leaves the part file in place on close, for a later {@link #resume}. */
+        public void keepOnClose() {
+            keep = true;
+        }
+
+        /** Publishes the written (and closed) report and returns its id. */
+        public String commit() throws IOException {
+            Path target = Paths.get(dir, gzip ? id + ".gz" : id);
+            if (resumable && gzip) {
+                Path packed = Paths.get(dir, "." + id + ".gz.part");
+                try (InputStream in = Files.newInputStream(part);
+                        OutputStream out = new GZIPOutputStream(
+                                new BufferedOutputStream(Files.newOutputStream(packed)), 8192)) {
+                    in.transferTo(out);
+                }
+                Files.move(packed, target, StandardCopyOption.ATOMIC_MOVE);
+                Files.delete(part);
+            } else {
+                Files.move(part, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            committed = true;
+            evict();
+            return id;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed && !keep)
+                Files.deleteIfExists(part);
+        }
+    }
+
+    /**
+     * A stored report. {@code storedLength} is the size on disk, {@code plainLength} the
+     * size of the CSV itself (the same unless {@code gzipped}).
+     */
+    public record Report(String id, Path path, boolean gzipped, long storedLength, long plainLength) {
+    }
+
+    public Draft create() {
+        return new Draft(newId(), false, 0);
+    }
+
+    public Draft createResumable() {
+        return new Draft(newId(), true, 0);
+    }
+
+    /**
+     * Continues a resumable draft from {@code length} bytes, dropping anything written after
+     * that; {@code null} when its part file is gone or shorter (e.g. evicted).
+     */
+    public Draft resume(String id, long length) throws IOException {
+        if (id == null || !ID.matcher(id).matches())
+            return null;
+        Path part = Paths.get(dir, "." + id + ".part");
+        if (!Files.isRegularFile(part) || Files.size(part) < length)
+            return null;
+        return new Draft(id, true, length);
+    }
+
+    private static String newId() {
+        return PREFIX + LocalDateTime.now().format(TS) + "-" + UUID.randomUUID().toString().replace("-", "") + ".csv";
+    }
+
+    /** Looks up a report by id; unknown or malformed ids (including paths) give {@code null}. */
+    public Report find(String id) throws IOException {
+        if (id == null || !ID.matcher(id).matches())
+            return null;
+        Path gz = Paths.get(dir, id + ".gz");
+        if (Files.isRegularFile(gz)) {
+            long stored = Files.size(gz);
+            return new Report(id, gz, true, stored, gzipPlainLength(gz));
+        }
+        Path plain = Paths.get(dir, id);
+        if (Files.isRegularFile(plain)) {
+            long stored = Files.size(plain);
+            return new Report(id, plain, false, stored, stored);
+        }
+        return null;
+    }
+
+    /**
+     * Copies {@code count} bytes starting at {@code start} of the report to {@code out}.
+     * With {@code encoded} the stored bytes are sent as they are through
+     * {@link FileChannel#transferTo}; otherwise a gzipped report is inflated on the way.
+     */
+    public void transfer(Report report, boolean encoded, long start, long count, OutputStream out)
+            throws IOException {
+        if (encoded || !report.gzipped()) {
+            WritableByteChannel target = Channels.newChannel(out);
+            try (FileChannel ch = FileChannel.open(report.path(), StandardOpenOption.READ)) {
+                long pos = start;
+                long end = start + count;
+                while (pos < end) {
+                    long n = ch.transferTo(pos, end - pos, target);
+                    if (n <= 0)
+                        break;
+                    pos += n;
+                }
+            }
+            return;
+        }
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(report.path()), 8192)) {
+            in.skipNBytes(start);
+            byte[] buf = new byte[8192];
+            long left = count;
+            while (left > 0) {
+                int n = in.read(buf, 0, (int) Math.min(buf.length, left));
+                if (n < 0)
+                    break;
+                out.write(buf, 0, n);
+                left -= n;
+            }
+        }
+    }
+
+    /** Deletes reports past retention, then the oldest ones until the size budget is met. */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void evict() {
+        Path root = Paths.get(dir);
+        if (!Files.isDirectory(root))
+            return;
+        List<Path> reports = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(root, PREFIX + "*.csv*")) {
+            ds.forEach(reports::add);
+        } catch (IOException ex) {
+            log.warn("cannot list error reports in {}", root, ex);
+            return;
+        }
+
+        long cutoff = System.currentTimeMillis() - retentionHours * 3_600_000L;
+        // part files left behind by a crash
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(root, "." + PREFIX + "*.part")) {
+            for (Path p : ds) {
+                if (Files.getLastModifiedTime(p).toMillis() < cutoff)
+                    Files.deleteIfExists(p);
+            }
+        } catch (IOException ex) {
+            log.warn("cannot clean error report part files in {}", root, ex);
+        }
+
+        List<BasicFileAttributes> attrs = new ArrayList<>();
+        List<Path> kept = new ArrayList<>();
+        for (Path p : reports) {
+            try {
+                BasicFileAttributes a = Files.readAttributes(p, BasicFileAttributes.class);
+                if (a.lastModifiedTime().toMillis() < cutoff) {
+                    Files.deleteIfExists(p);
+                } else {
+                    kept.add(p);
+                    attrs.add(a);
+                }
+            } catch (IOException ex) {
+                log.warn("cannot evict error report {}", p, ex);
+            }
+        }
+
+        long total = attrs.stream().mapToLong(BasicFileAttributes::size).sum();
+        if (total <= maxTotalBytes)
+            return;
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < kept.size(); i++)
+            order.add(i);
+        order.sort(Comparator.comparing(i -> attrs.get(i).lastModifiedTime()));
+        // never evict the newest report, it was usually just handed out
+        for (int k = 0; k < order.size() - 1 && total > maxTotalBytes; k++) {
+            int i = order.get(k);
+            try {
+                Files.deleteIfExists(kept.get(i));
+                total -= attrs.get(i).size();
+            } catch (IOException ex) {
+                log.warn("cannot evict error report {}", kept.get(i), ex);
+            }
+        }
+    }
+
+    // the gzip trailer ends with the input size mod 2^32; reports are bounded well below that
+    private static long gzipPlainLength(Path gz) throws IOException {
+        try (FileChannel ch = FileChannel.open(gz, StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            ch.read(buf, ch.size() - 4);
+            return Integer.toUnsignedLong(buf.getInt(0));
+        }
+    }
+}
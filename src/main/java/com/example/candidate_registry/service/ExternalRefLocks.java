@@ -0,0 +1,101 @@
+package com.example.candidate_registry.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reserves the external_refs of an upload while it is imported, so that uploads touching
+ * the same candidates run one after the other and unrelated uploads run side by side.
+ * All keys of an upload are reserved at once, before its transaction starts: a waiting
+ * upload holds nothing, so two uploads cannot deadlock on each other, and the later one
+ * reads what the earlier one committed. Waiting uses a {@link ReentrantLock} rather than a
+ * monitor so that a waiting virtual thread does not pin its carrier.
+ */
+@Component
+public class ExternalRefLocks {
+
+    /** The keys stayed reserved by other uploads for longer than the wait timeout. */
+    public static class KeysBusyException extends RuntimeException {
+        public KeysBusyException(String message) {
+            super(message);
+        }
+    }
+
+    /** Reserved keys; closing releases them. */
+    public interface Lease extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final Set<String> held = new HashSet<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition released = lock.newCondition();
+
+    @Value("${app.upload.lock.timeout-ms:60000}")
+    private long timeoutMs;
+
+    /**
+     * The identity of an external_ref under the column's case- and accent-insensitive
+     * collation: {@code CND-001} and {@code cnd-001} are the same unique key. Folded like the
+     * search index, which may equate more than the collation does, never less.
+     */
+    static String key(String externalRef) {
+        return CandidateSearchIndex.fold(externalRef);
+    }
+
+    /**
+     * Waits until none of {@code keys} is reserved, then reserves all of them. Keys are
+     * reserved by their {@link #key} so that case and accent variants wait for each other.
+     */
+    public Lease acquire(Collection<String> keys) throws InterruptedException {
+        List<String> reserved = new ArrayList<>(keys.size());
+        for (String k : keys)
+            reserved.add(key(k));
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        lock.lockInterruptibly();
+        try {
+            while (overlaps(reserved)) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0)
+                    throw new KeysBusyException("Another upload is writing the same external_ref values.");
+                released.awaitNanos(left);
+            }
+            held.addAll(reserved);
+        } finally {
+            lock.unlock();
+        }
+        return () -> release(reserved);
+    }
+
+    private boolean overlaps(List<String> keys) {
+        if (held.isEmpty())
+            return false;
+        for (String key : keys) {
+            if (held.contains(key))
+                return true;
+        }
+        return false;
+    }
+
+    private void release(List<String> keys) {
+        lock.lock();
+        try {
+            for (String key : keys)
+                held.remove(key);
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.candidate_registry.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Opaque cursor for keyset paging: the sort column and direction plus the sort key and
+ * id of the last row of the previous page, as base64url-encoded JSON.
+ */
+public record KeysetCursor(String sort, String dir, Map<String, Object> keys) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static KeysetCursor first(String sort, String dir) {
+        return new KeysetCursor(sort, dir, Map.of());
+    }
+
+    public ScrollPosition position() {
+        if (keys.isEmpty())
+            return ScrollPosition.keyset();
+        Map<String, Object> k = new LinkedHashMap<>(keys);
+        // JSON numbers come back as Integer; the id attribute is a Long
+        if (k.get("id") instanceof Number n)
+            k.put("id", n.longValue());
+        return ScrollPosition.forward(k);
+    }
+
+    public KeysetCursor next(ScrollPosition position) {
+        return new KeysetCursor(sort, dir, ((KeysetScrollPosition) position).getKeys());
+    }
+
+    public String encode() {
+        try {
+            byte[] json = MAPPER.writeValueAsBytes(this);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(cursor);
+            KeysetCursor c = MAPPER.readValue(new String(json, StandardCharsets.UTF_8), KeysetCursor.class);
+            if (c.sort() == null || c.keys() == null)
+                throw new IllegalArgumentException("invalid cursor");
+            return c;
+        } catch (IllegalArgumentException | JsonProcessingException ex) {
+            throw new IllegalArgumentException("invalid cursor", ex);
+        }
+    }
+}
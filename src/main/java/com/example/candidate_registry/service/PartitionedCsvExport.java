@@ -0,0 +1,129 @@
+package com.example.candidate_registry.service;
+
+import com.example.candidate_registry.entity.Candidate;
+import com.example.candidate_registry.repository.CandidateRepository;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.csv.CSVPrinter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * CSV export that splits the id space into fixed ranges and reads and formats each range
+ * on a worker thread, each query on its own connection. Formatted ranges are written to
+ * the client strictly in id order, so the output is the same as
+ * {@link CandidateService#exportCsv}. At most {@code max-in-flight} ranges of one export are
+ * pending, which bounds the memory held by formatted chunks; the worker pool is shared by
+ * all exports and caps the connections they take.
+ */
+@Component
+public class PartitionedCsvExport {
+
+    private final CandidateRepository repo;
+
+    private final CandidateMetrics metrics;
+
+    private final ExecutorService workers;
+
+    private final TransactionTemplate readOnlyTx;
+
+    @Value("${app.export.parallel.range-size:10000}")
+    private long rangeSize;
+
+    @Value("${app.export.parallel.max-in-flight:8}")
+    private int maxInFlight;
+
+    public PartitionedCsvExport(CandidateRepository repo, CandidateMetrics metrics,
+            PlatformTransactionManager transactionManager, @Value("${app.export.parallel.workers:4}") int workers,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.repo = repo;
+        this.metrics = metrics;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        Thread.Builder threads = virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform();
+        this.workers = Executors.newFixedThreadPool(workers, threads.name("export-", 0).factory());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    public void exportCsv(String name, String nationality, String origin, OutputStream os) throws IOException {
+        String n = CandidateService.filter(name);
+        String nat = CandidateService.filter(nationality);
+        String o = CandidateService.filter(origin);
+        long started = System.nanoTime();
+        CandidateService.CountingOutputStream counted = new CandidateService.CountingOutputStream(os);
+        String outcome = "failed";
+        Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+        try (OutputStream out = counted) {
+            format(out, List.of(), true);
+            out.flush();
+            Long min = readOnlyTx.execute(status -> repo.findMinId());
+            Long max = readOnlyTx.execute(status -> repo.findMaxId());
+            if (min != null) {
+                for (long from = min; from <= max; from += rangeSize) {
+                    long lo = from;
+                    long hi = Math.min(max, from + rangeSize - 1);
+                    inFlight.addLast(workers.submit(() -> range(lo, hi, n, nat, o)));
+                    while (inFlight.size() >= Math.max(1, maxInFlight))
+                        writeOldest(inFlight, out);
+                }
+                while (!inFlight.isEmpty())
+                    writeOldest(inFlight, out);
+            }
+            outcome = "completed";
+        } finally {
+            for (Future<byte[]> f : inFlight)
+                f.cancel(true);
+            metrics.recordExport(counted.count, System.nanoTime() - started, outcome);
+        }
+    }
+
+    // read-only like the sequential export, so ranges go to a replica when one is configured
+    private byte[] range(long lo, long hi, String name, String nationality, String origin) throws IOException {
+        List<Candidate> rows = readOnlyTx.execute(status -> repo
+                .findByIdBetweenAndNameContainingIgnoreCaseAndNationalityContainingIgnoreCaseAndOriginContainingIgnoreCaseOrderByIdAsc(
+                        lo, hi, name, nationality, origin));
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(rows.size() * 64 + 16);
+        format(buf, rows, false);
+        return buf.toByteArray();
+    }
+
+    private static void format(OutputStream out, List<Candidate> rows, boolean header) throws IOException {
+        // not closed: that would close the target stream
+        CSVPrinter printer = CandidateCsvWriter.printer(out, header);
+        for (Candidate c : rows)
+            CandidateCsvWriter.printRecord(printer, c);
+        printer.flush();
+    }
+
+    private static void writeOldest(Deque<Future<byte[]>> inFlight, OutputStream out) throws IOException {
+        byte[] chunk;
+        try {
+            chunk = inFlight.removeFirst().get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("export interrupted");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException io)
+                throw io;
+            if (ex.getCause() instanceof RuntimeException re)
+                throw re;
+            throw new IOException(ex.getCause());
+        }
+        out.write(chunk);
+        out.flush();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.candidate_registry.service;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Version stamp of the registry data, for conditional GETs of the list and the export.
+ * It starts at the boot time, since nothing proves that the data did not change while the
+ * application was down, and moves once per upload transaction that changed rows, after
+ * its commit. Checking it never touches the candidate table. Uploads are the only
+ * writers; a direct database change is only seen after a restart.
+ */
+@Component
+public class RegistryVersion {
+
+    /**
+     * {@code lastModified} in epoch milliseconds, a whole second (the resolution of
+     * Last-Modified) and never in the future. Two commits in the same second share it, so
+     * only the ETag tells them apart. The ETag is the boot time and a per-boot counter, so
+     * it is never reissued after a restart; it is weak, as gzip and plain share it.
+     */
+    public record Stamp(long lastModified, String etag) {
+    }
+
+    private final String boot;
+
+    private long version;
+
+    private volatile Stamp current;
+
+    public RegistryVersion() {
+        long now = System.currentTimeMillis();
+        this.boot = Long.toString(now, 36);
+        this.current = stamp(floorSecond(now));
+    }
+
+    /**
+     * Uploads publish one event per batch; the stamp moves once, after the commit of the
+     * transaction that published them, and after the other listeners (index, counts, page
+     * cache, replica routing) so that a request seeing the new stamp also sees their state.
+     */
+    @EventListener
+    public void onCandidatesChanged(CandidatesChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bump();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(this))
+            return;
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public int getOrder() {
+                return Ordered.LOWEST_PRECEDENCE;
+            }
+
+            @Override
+            public void afterCommit() {
+                bump();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(RegistryVersion.this);
+            }
+        });
+    }
+
+    public Stamp current() {
+        return current;
+    }
+
+    private synchronized void bump() {
+        current = stamp(Math.max(current.lastModified(), floorSecond(System.currentTimeMillis())));
+    }
+
+    // caller holds the lock, or is the constructor
+    private Stamp stamp(long lastModified) {
+        return new Stamp(lastModified, "W/\"" + boot + "-" + version++ + "\"");
+    }
+
+    private static long floorSecond(long millis) {
+        return millis - Math.floorMod(millis, 1000);
+    }
+}
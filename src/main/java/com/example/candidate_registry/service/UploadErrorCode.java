@@ -0,0 +1,19 @@
+package com.example.candidate_registry.service;
+
+/**
+ * Row-level upload error codes, as written to the error report and the metrics.
+ */
+enum UploadErrorCode {
+    /** a required column is empty */
+    REQ_MISSING,
+    /** a value is longer than its column allows */
+    LEN_OVER,
+    /** a value does not parse as the column's type */
+    TYPE_MISMATCH,
+    /** a number is outside its column's range */
+    RANGE_ERROR,
+    /** the external_ref occurs more than once in the file */
+    DUP_IN_FILE,
+    /** the row could not be written */
+    UNKNOWN_ERROR
+}
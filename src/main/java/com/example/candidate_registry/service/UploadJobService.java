@@ -0,0 +1,156 @@
+package com.example.candidate_registry.service;
+
+import com.example.candidate_registry.dto.CsvUploadResult;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Runs CSV imports in the background so the upload request can return right away.
+ * The multipart file is spooled to a temp file first, because the container deletes
+ * its own copy when the request ends. Jobs run on a bounded pool; a full queue
+ * rejects new jobs instead of piling them up.
+ */
+@Service
+public class UploadJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadJobService.class);
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED
+    }
+
+    public static class UploadJob {
+        public final String id;
+        public final UploadProgress progress = new UploadProgress();
+        volatile Status status = Status.QUEUED;
+        volatile CsvUploadResult result;
+        volatile String errorCode;
+        volatile String errorMessage;
+        volatile long finishedAtMillis;
+
+        UploadJob(String id) {
+            this.id = id;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public CsvUploadResult getResult() {
+            return result;
+        }
+
+        public String getErrorCode() {
+            return errorCode;
+        }
+
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+    }
+
+    private final CandidateService service;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Map<String, UploadJob> jobs = new ConcurrentHashMap<>();
+
+    @Value("${app.upload.max-size-bytes:5242880}")
+    private long maxFileSize;
+
+    @Value("${app.upload.jobs.retention-minutes:60}")
+    private long retentionMinutes;
+
+    public UploadJobService(CandidateService service,
+            @Value("${app.upload.jobs.concurrency:2}") int concurrency,
+            @Value("${app.upload.jobs.queue-capacity:20}") int queueCapacity,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.service = service;
+        // the pool still bounds how many imports run at once; virtual threads only stop a
+        // job blocked on the database or the disk from holding a platform thread
+        Thread.Builder threads = virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform();
+        this.executor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threads.name("upload-job-", 0).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queues an import of the given file and returns its job. Oversized files are rejected
+     * here with FILE_LIMIT; a full queue with {@link RejectedExecutionException}.
+     */
+    public UploadJob submit(MultipartFile file, String baseUrl, boolean force) throws IOException {
+        if (file == null)
+            throw new IllegalArgumentException("file is required");
+        if (file.getSize() > maxFileSize)
+            throw new CandidateService.FileSizeLimitExceededException("FILE_LIMIT", "File too large (max 5MB).");
+        evictFinished();
+
+        File spooled = Files.createTempFile("upload-job-", ".csv").toFile();
+        file.transferTo(spooled);
+        UploadJob job = new UploadJob(UUID.randomUUID().toString());
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job, spooled, baseUrl, force));
+        } catch (RejectedExecutionException ex) {
+            jobs.remove(job.id);
+            Files.deleteIfExists(spooled.toPath());
+            throw ex;
+        }
+        return job;
+    }
+
+    public UploadJob get(String id) {
+        return jobs.get(id);
+    }
+
+    private void run(UploadJob job, File spooled, String baseUrl, boolean force) {
+        job.status = Status.RUNNING;
+        try (InputStream in = Files.newInputStream(spooled.toPath())) {
+            job.result = service.uploadCsv(in, spooled.length(), baseUrl, force, job.progress);
+            job.status = Status.SUCCEEDED;
+        } catch (CandidateService.FileSizeLimitExceededException ex) {
+            fail(job, ex.code, ex.getMessage());
+        } catch (ExternalRefLocks.KeysBusyException ex) {
+            fail(job, "BUSY", ex.getMessage());
+        } catch (Exception ex) {
+            log.warn("upload job {} failed", job.id, ex);
+            fail(job, "MALFORMED_CSV", ex.getMessage());
+        } finally {
+            job.finishedAtMillis = System.currentTimeMillis();
+            try {
+                Files.deleteIfExists(spooled.toPath());
+            } catch (IOException ex) {
+                log.warn("could not delete spooled upload {}", spooled, ex);
+            }
+        }
+    }
+
+    private void fail(UploadJob job, String code, String message) {
+        job.errorCode = code;
+        job.errorMessage = message;
+        job.status = Status.FAILED;
+    }
+
+    // finished jobs are kept for polling for a while, then dropped
+    private void evictFinished() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(retentionMinutes);
+        jobs.values().removeIf(j -> j.finishedAtMillis != 0 && j.finishedAtMillis < cutoff);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
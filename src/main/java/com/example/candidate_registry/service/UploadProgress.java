@@ -0,0 +1,43 @@
+package com.example.candidate_registry.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live row counters and phase timings of one CSV import, safe to read from other
+ * threads while it runs. Elapsed time and throughput cover the import itself, from
+ * {@link #started()} to {@link #finished()}: a background job's time in the queue is not
+ * part of them.
+ */
+public class UploadProgress {
+    // 0 until set
+    private volatile long startedAtMillis;
+    private volatile long finishedAtMillis;
+
+    public final AtomicLong rowsParsed = new AtomicLong();
+    public final AtomicLong rowsSucceeded = new AtomicLong();
+    public final AtomicLong rowsFailed = new AtomicLong();
+    public final UploadTimings timings = new UploadTimings();
+
+    public void started() {
+        startedAtMillis = System.currentTimeMillis();
+    }
+
+    public void finished() {
+        finishedAtMillis = System.currentTimeMillis();
+    }
+
+    public long elapsedMillis() {
+        long start = startedAtMillis;
+        if (start == 0)
+            return 0;
+        long end = finishedAtMillis;
+        return (end == 0 ? System.currentTimeMillis() : end) - start;
+    }
+
+    // imported (succeeded or failed) rows per second since the import started
+    public double rowsPerSecond() {
+        long elapsed = elapsedMillis();
+        long done = rowsSucceeded.get() + rowsFailed.get();
+        return elapsed == 0 ? 0 : done * 1000.0 / elapsed;
+    }
+}
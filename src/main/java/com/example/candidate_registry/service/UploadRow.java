@@ -0,0 +1,50 @@
+package com.example.candidate_registry.service;
+
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+
+// one CSV data row on its way through validation and the upsert
+class UploadRow {
+    int rowNumber;
+    String externalRef;
+    String name;
+    String ageRaw;
+    Integer age;
+    String nationality;
+    String origin;
+    String notes;
+    UploadErrorCode errorCode;
+    String errorMessage;
+    // set by the upsert: the row matched the stored content hash and was not written
+    boolean unchanged;
+
+    // spill layout: row_number, error_code, error_message, external_ref, name, age (raw), age,
+    // nationality, origin, notes; null is written as an empty field
+    void spill(CSVPrinter printer) throws IOException {
+        printer.printRecord(rowNumber, errorCode, errorMessage, externalRef, name, ageRaw, age, nationality,
+                origin, notes);
+    }
+
+    static UploadRow fromSpill(CSVRecord record) {
+        UploadRow row = new UploadRow();
+        row.rowNumber = Integer.parseInt(record.get(0));
+        String code = record.get(1);
+        row.errorCode = code.isEmpty() ? null : UploadErrorCode.valueOf(code);
+        row.errorMessage = emptyToNull(record.get(2));
+        row.externalRef = emptyToNull(record.get(3));
+        row.name = emptyToNull(record.get(4));
+        row.ageRaw = emptyToNull(record.get(5));
+        String age = record.get(6);
+        row.age = age.isEmpty() ? null : Integer.valueOf(age);
+        row.nationality = emptyToNull(record.get(7));
+        row.origin = emptyToNull(record.get(8));
+        row.notes = emptyToNull(record.get(9));
+        return row;
+    }
+
+    private static String emptyToNull(String s) {
+        return s.isEmpty() ? null : s;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.candidate_registry.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Time spent per phase of one CSV import. Phases may be recorded from several threads
+ * (validation runs on the fork-join pool), so {@code VALIDATE} is summed task time and
+ * can exceed the wall time of {@code PARSE}, which covers the whole first pass.
+ */
+public class UploadTimings {
+
+    public enum Phase {
+        /** first pass: parse, validate and spill (wall time) */
+        PARSE,
+        /** normalization and validation, summed over the validation tasks */
+        VALIDATE,
+        /** external_ref occurrence counting for DUP_IN_FILE */
+        DUPLICATE_CHECK,
+        /** waiting for other uploads writing the same external_refs (see ExternalRefLocks) */
+        KEY_WAIT,
+        /** existing-row lookups by external_ref */
+        LOOKUP,
+        /** batched inserts and updates */
+        SAVE,
+        /** error report writes */
+        ERROR_REPORT;
+
+        public String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final AtomicLongArray nanos = new AtomicLongArray(Phase.values().length);
+
+    public void add(Phase phase, long elapsedNanos) {
+        nanos.addAndGet(phase.ordinal(), elapsedNanos);
+    }
+
+    public long nanos(Phase phase) {
+        return nanos.get(phase.ordinal());
+    }
+
+    // phase tag -> milliseconds, in phase order
+    public Map<String, Long> toMillis() {
+        Map<String, Long> millis = new LinkedHashMap<>();
+        for (Phase p : Phase.values())
+            millis.put(p.tag(), nanos(p) / 1_000_000);
+        return millis;
+    }
+}
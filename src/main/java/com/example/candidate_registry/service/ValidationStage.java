@@ -0,0 +1,83 @@
+package com.example.candidate_registry.service;
+
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Import pipeline stage that validates chunks of parsed records on a fork-join pool.
+ * Chunks are handed to the sink strictly in submission order, so downstream stages
+ * (spill, persistence, error report) still see rows in row_number order. At most
+ * {@code maxInFlight} chunks are pending; submitting more blocks on the oldest one,
+ * which keeps the parser from running ahead of validation.
+ */
+class ValidationStage {
+
+    interface Sink {
+        void accept(List<UploadRow> validated) throws IOException;
+    }
+
+    private final ForkJoinPool pool;
+
+    private final int maxInFlight;
+
+    private final CsvRowValidator validator;
+
+    private final Sink sink;
+
+    private final UploadTimings timings;
+
+    private final Deque<ForkJoinTask<List<UploadRow>>> inFlight = new ArrayDeque<>();
+
+    ValidationStage(ForkJoinPool pool, int maxInFlight, CsvRowValidator validator, UploadTimings timings,
+            Sink sink) {
+        this.pool = pool;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.validator = validator;
+        this.timings = timings;
+        this.sink = sink;
+    }
+
+    void submit(List<CSVRecord> records) throws IOException {
+        inFlight.addLast(pool.submit(() -> {
+            long start = System.nanoTime();
+            List<UploadRow> rows = new ArrayList<>(records.size());
+            for (CSVRecord record : records)
+                rows.add(validator.read(record));
+            timings.add(UploadTimings.Phase.VALIDATE, System.nanoTime() - start);
+            return rows;
+        }));
+        while (inFlight.size() >= maxInFlight)
+            drainOldest();
+    }
+
+    // waits for all pending chunks and hands them to the sink
+    void finish() throws IOException {
+        while (!inFlight.isEmpty())
+            drainOldest();
+    }
+
+    void cancel() {
+        for (ForkJoinTask<?> task : inFlight)
+            task.cancel(true);
+        inFlight.clear();
+    }
+
+    private void drainOldest() throws IOException {
+        ForkJoinTask<List<UploadRow>> task = inFlight.removeFirst();
+        List<UploadRow> rows;
+        try {
+            rows = task.join();
+        } catch (RuntimeException ex) {
+            cancel();
+            throw ex;
+        }
+        sink.accept(rows);
+    }
+}
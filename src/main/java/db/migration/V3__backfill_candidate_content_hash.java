@@ -0,0 +1,52 @@
+package db.migration;
+
+import com.example.candidate_registry.entity.CandidateContentHash;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+/**
+ * Fills content_hash for rows written before V2. The hash needs the same encoding as
+ * the application, which SQL cannot reproduce portably, so it is computed here.
+ * updated_at is set to itself so that ON UPDATE CURRENT_TIMESTAMP does not fire.
+ */
+public class V3__backfill_candidate_content_hash extends BaseJavaMigration {
+
+    private static final int CHUNK = 1000;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection con = context.getConnection();
+        try (PreparedStatement select = con.prepareStatement(
+                "SELECT id, name, age, nationality, origin, notes FROM candidate "
+                        + "WHERE id > ? AND content_hash IS NULL ORDER BY id LIMIT " + CHUNK);
+                PreparedStatement update = con.prepareStatement(
+                        "UPDATE candidate SET content_hash = ?, updated_at = updated_at WHERE id = ?")) {
+            long afterId = 0;
+            while (true) {
+                select.setLong(1, afterId);
+                int rows = 0;
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        int age = rs.getInt("age");
+                        Integer ageOrNull = rs.wasNull() ? null : age;
+                        String hash = CandidateContentHash.of(rs.getString("name"), ageOrNull,
+                                rs.getString("nationality"), rs.getString("origin"), rs.getString("notes"));
+                        afterId = rs.getLong("id");
+                        update.setString(1, hash);
+                        update.setLong(2, afterId);
+                        update.addBatch();
+                        rows++;
+                    }
+                }
+                if (rows > 0)
+                    update.executeBatch();
+                if (rows < CHUNK)
+                    break;
+            }
+        }
+    }
+}
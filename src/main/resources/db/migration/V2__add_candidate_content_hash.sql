@@ -0,0 +1,3 @@
+-- SHA-256 (hex) of name, age, nationality, origin and notes; lets the upload skip unchanged rows.
+-- Existing rows are filled in by the Java migration V3.
+ALTER TABLE candidate ADD COLUMN content_hash CHAR(64) NULL;
@@ -0,0 +1,9 @@
+-- results of recent uploads by file fingerprint, for answering identical re-uploads without importing again
+CREATE TABLE upload_receipt (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  file_sha256 CHAR(64) NOT NULL,
+  result_json TEXT NOT NULL,
+  error_report_id VARCHAR(100),
+  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  CONSTRAINT uq_upload_receipt_sha UNIQUE (file_sha256)
+);
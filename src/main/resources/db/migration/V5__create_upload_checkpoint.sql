@@ -0,0 +1,13 @@
+-- progress of imports committed in chunks, for resuming an interrupted import of the same file
+CREATE TABLE upload_checkpoint (
+  file_sha256 CHAR(64) PRIMARY KEY,
+  upload_id VARCHAR(36) NOT NULL,
+  last_committed_row INT NOT NULL,
+  committed_chunks INT NOT NULL,
+  success_count INT NOT NULL,
+  failure_count INT NOT NULL,
+  unchanged_count INT NOT NULL,
+  error_report_id VARCHAR(100) NOT NULL,
+  error_report_length BIGINT NOT NULL,
+  updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
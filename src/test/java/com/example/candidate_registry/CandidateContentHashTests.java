@@ -0,0 +1,117 @@
+package com.example.candidate_registry;
+
+import com.example.candidate_registry.entity.Candidate;
+import com.example.candidate_registry.entity.CandidateContentHash;
+import com.example.candidate_registry.repository.CandidateRepository;
+import com.jayway.jsonpath.JsonPath;
+import db.migration.V3__backfill_candidate_content_hash;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.migration.Context;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Timestamp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class CandidateContentHashTests {
+
+    private static final String CSV = "external_ref,name,age,nationality,origin,notes\n" +
+            "CND-001,Jane Smith,31,Canada,Toronto,\"Has \"\"management\"\" experience\"\n" +
+            "CND-002,John Doe,,USA,New York,\n" +
+            "CND-003,Kai Lin,25,Japan,Osaka,Excellent adaptability\n";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    CandidateRepository repo;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Autowired
+    DataSource dataSource;
+
+    @BeforeEach
+    public void before() throws Exception {
+        repo.deleteAll();
+        upload(CSV);
+    }
+
+    @Test
+    public void reupload_of_unchanged_rows_writes_nothing() throws Exception {
+        // updated_at only has second precision in some databases; make a bump visible
+        jdbc.update("UPDATE candidate SET updated_at = TIMESTAMP '2020-01-01 00:00:00'");
+
+        String body = upload(CSV.replace("Kai Lin,25", "Kai Lin,26"));
+        assertEquals(3, (int) JsonPath.read(body, "$.successCount"));
+        assertEquals(2, (int) JsonPath.read(body, "$.unchangedCount"));
+
+        assertEquals(Timestamp.valueOf("2020-01-01 00:00:00"), updatedAt("CND-001"));
+        assertEquals(Timestamp.valueOf("2020-01-01 00:00:00"), updatedAt("CND-002"));
+        Candidate kai = repo.findByExternalRef("CND-003").orElseThrow();
+        assertEquals(26, kai.getAge());
+        assertEquals(CandidateContentHash.of(kai), kai.getContentHash());
+    }
+
+    @Test
+    public void partial_columns_are_merged_before_comparing() throws Exception {
+        String same = upload("external_ref,name\nCND-001,Jane Smith\nCND-002,Johnny Doe\n");
+        assertEquals(2, (int) JsonPath.read(same, "$.successCount"));
+        assertEquals(1, (int) JsonPath.read(same, "$.unchangedCount"));
+
+        Candidate john = repo.findByExternalRef("CND-002").orElseThrow();
+        assertEquals("Johnny Doe", john.getName());
+        assertEquals("USA", john.getNationality());
+        assertEquals(CandidateContentHash.of(john), john.getContentHash());
+    }
+
+    @Test
+    public void migration_backfills_missing_hashes() throws Exception {
+        jdbc.update("UPDATE candidate SET content_hash = NULL");
+        try (Connection con = dataSource.getConnection()) {
+            new V3__backfill_candidate_content_hash().migrate(new Context() {
+                @Override
+                public Configuration getConfiguration() {
+                    return null;
+                }
+
+                @Override
+                public Connection getConnection() {
+                    return con;
+                }
+            });
+        }
+        for (Candidate c : repo.findAll())
+            assertEquals(CandidateContentHash.of(c), c.getContentHash());
+
+        assertEquals(3, (int) JsonPath.read(upload(CSV), "$.unchangedCount"));
+    }
+
+    private Timestamp updatedAt(String externalRef) {
+        return jdbc.queryForObject("SELECT updated_at FROM candidate WHERE external_ref = ?", Timestamp.class,
+                externalRef);
+    }
+
+    private String upload(String csv) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "c.csv", "text/csv",
+                csv.getBytes(StandardCharsets.UTF_8));
+        return mockMvc.perform(multipart("/api/candidates/csv/upload").file(file))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.candidate_registry;
+
+import com.example.candidate_registry.entity.Candidate;
+import com.example.candidate_registry.repository.CandidateRepository;
+import com.example.candidate_registry.service.CandidateCounts;
+import com.example.candidate_registry.service.CandidateFields;
+import com.example.candidate_registry.service.CandidateSearchCache;
+import com.example.candidate_registry.service.CandidateSearchIndex;
+import com.example.candidate_registry.service.CandidatesChangedEvent;
+import com.example.candidate_registry.service.CountMode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "app.search.count.cap=3")
+@AutoConfigureMockMvc
+public class CandidateCountsTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    CandidateRepository repo;
+
+    @Autowired
+    CandidateSearchCache searchCache;
+
+    @Autowired
+    CandidateSearchIndex index;
+
+    @Autowired
+    CandidateCounts counts;
+
+    @Autowired
+    ApplicationEventPublisher events;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void before() throws Exception {
+        repo.deleteAll();
+        searchCache.clear();
+        index.rebuild();
+        counts.rebuild();
+        StringBuilder csv = new StringBuilder("external_ref,name,age,nationality,origin,notes\n");
+        for (int i = 1; i <= 10; i++)
+            csv.append(String.format("CND-%03d,Name %d,%d,Japan,Tokyo,%n", i, i, 20 + i));
+        csv.append("CND-011,Jane,40,Canada,Toronto,\n");
+        upload(csv.toString());
+    }
+
+    @Test
+    public void unfiltered_total_follows_uploads_without_counting() throws Exception {
+        mockMvc.perform(get("/api/candidates").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(11))
+                .andExpect(jsonPath("$.totalKind").value("exact"))
+                .andExpect(jsonPath("$.last").value(false));
+
+        upload("external_ref,name,age,nationality,origin,notes\n" +
+                "CND-012,Hanako,28,Japan,Osaka,\n" +
+                "CND-001,Name 1,21,Japan,Kyoto,\n");
+
+        mockMvc.perform(get("/api/candidates").param("size", "2"))
+                .andExpect(jsonPath("$.totalElements").value(12))
+                .andExpect(jsonPath("$.totalPages").value(6));
+    }
+
+    @Test
+    public void capped_count_stops_at_the_cap() throws Exception {
+        mockMvc.perform(get("/api/candidates").param("nationality", "japan").param("size", "2")
+                        .param("count", "capped"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.totalElements").value(3))
+                .andExpect(jsonPath("$.totalKind").value("capped"))
+                .andExpect(jsonPath("$.totalLabel").value("3+"))
+                .andExpect(jsonPath("$.last").value(false));
+
+        // under the cap the capped count is exact
+        mockMvc.perform(get("/api/candidates").param("nationality", "canada").param("size", "1")
+                        .param("page", "1").param("count", "capped"))
+                .andExpect(jsonPath("$.totalElements").value(1))
+                .andExpect(jsonPath("$.totalKind").value("exact"));
+    }
+
+    @Test
+    public void last_page_gives_the_exact_total() throws Exception {
+        mockMvc.perform(get("/api/candidates").param("nationality", "japan").param("size", "4")
+                        .param("page", "2").param("count", "capped"))
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.totalElements").value(10))
+                .andExpect(jsonPath("$.totalKind").value("exact"))
+                .andExpect(jsonPath("$.last").value(true));
+
+        // remembered for the earlier pages of the same filters
+        mockMvc.perform(get("/api/candidates").param("nationality", "japan").param("size", "4")
+                        .param("count", "capped"))
+                .andExpect(jsonPath("$.totalElements").value(10))
+                .andExpect(jsonPath("$.totalKind").value("exact"));
+    }
+
+    @Test
+    public void estimated_count_uses_the_search_index() throws Exception {
+        mockMvc.perform(get("/api/candidates").param("nationality", "japan").param("size", "2")
+                        .param("count", "estimated"))
+                .andExpect(jsonPath("$.totalElements").value(10))
+                .andExpect(jsonPath("$.totalKind").value("estimated"))
+                .andExpect(jsonPath("$.totalLabel").value("~10"));
+    }
+
+    @Test
+    public void cached_count_is_dropped_by_a_matching_upload() throws Exception {
+        mockMvc.perform(get("/api/candidates").param("nationality", "japan").param("size", "2"))
+                .andExpect(jsonPath("$.totalElements").value(10));
+
+        upload("external_ref,name,age,nationality,origin,notes\n" +
+                "CND-012,Hanako,28,Japan,Osaka,\n");
+
+        mockMvc.perform(get("/api/candidates").param("nationality", "japan").param("size", "2"))
+                .andExpect(jsonPath("$.totalElements").value(11))
+                .andExpect(jsonPath("$.totalKind").value("exact"));
+    }
+
+    @Test
+    public void cached_count_is_dropped_by_an_accent_variant() throws Exception {
+        mockMvc.perform(get("/api/candidates").param("name", "jose").param("size", "2"))
+                .andExpect(jsonPath("$.totalElements").value(0));
+        mockMvc.perform(get("/api/candidates").param("origin", "sao").param("size", "2"))
+                .andExpect(jsonPath("$.totalElements").value(0));
+        CandidateCounts.Total before = counts.total("jose", "", "", null, CountMode.EXACT);
+        assertEquals(0, before.value());
+
+        // MySQL matches this row against the cached filters, so the upload must drop them. H2
+        // compares accents exactly, so the row is then rewritten without an event to a form
+        // H2 matches too: the new totals can only show if the upload already invalidated
+        upload("external_ref,name,age,nationality,origin,notes\n" +
+                "CND-012,José,28,Brazil,São Paulo,\n");
+        repo.findByExternalRef("CND-012").ifPresent(c -> {
+            c.setName("jose");
+            c.setOrigin("sao paulo");
+            repo.save(c);
+        });
+
+        assertEquals(1, counts.total("jose", "", "", null, CountMode.EXACT).value());
+        assertEquals(1, counts.total("", "", "sao", null, CountMode.EXACT).value());
+    }
+
+    @Test
+    public void rebuild_waits_for_a_committed_change_to_be_applied() throws Exception {
+        CountDownLatch committed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (ExecutorService threads = Executors.newFixedThreadPool(2)) {
+            // an upload chunk that has committed but whose listeners have not run yet
+            Future<?> upload = threads.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(tx -> {
+                Candidate c = new Candidate();
+                c.setExternalRef("CND-012");
+                c.setName("Hanako");
+                c.setNationality("Japan");
+                c.setOrigin("Osaka");
+                repo.save(c);
+                events.publishEvent(new CandidatesChangedEvent(List.of(new CandidatesChangedEvent.Change(c.getId(),
+                        null, new CandidateFields("Hanako", "Japan", "Osaka")))));
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public int getOrder() {
+                        return 0;
+                    }
+
+                    @Override
+                    public void afterCommit() {
+                        committed.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+            }));
+            committed.await();
+
+            // the row is in the table but its delta is still to come: the recount must wait
+            Future<?> rebuild = threads.submit(counts::rebuild);
+            try {
+                assertThrows(TimeoutException.class, () -> rebuild.get(300, TimeUnit.MILLISECONDS));
+            } finally {
+                release.countDown();
+            }
+            upload.get(10, TimeUnit.SECONDS);
+            rebuild.get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(12, repo.count());
+        assertEquals(12, counts.total("", "", "", null, CountMode.EXACT).value());
+    }
+
+    @Test
+    public void unknown_count_mode_is_rejected() throws Exception {
+        mockMvc.perform(get("/api/candidates").param("count", "roughly"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("INVALID_COUNT"));
+    }
+
+    @Test
+    public void page_shows_the_total_label_and_keeps_filters_in_links() throws Exception {
+        mockMvc.perform(get("/candidates").param("nationality", "japan").param("size", "2")
+                        .param("count", "capped"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("3+ candidates")))
+                .andExpect(content().string(containsString("nationality=japan")))
+                .andExpect(content().string(containsString("count=capped")));
+    }
+
+    private void upload(String csv) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "c.csv", "text/csv",
+                csv.getBytes(StandardCharsets.UTF_8));
+        mockMvc.perform(multipart("/api/candidates/csv/upload").file(file)).andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.candidate_registry;
+
+import com.example.candidate_registry.dto.CandidateFacetCounts;
+import com.example.candidate_registry.entity.Candidate;
+import com.example.candidate_registry.repository.CandidateRepository;
+import com.example.candidate_registry.service.CandidateFacets;
+import com.example.candidate_registry.service.CandidateFields;
+import com.example.candidate_registry.service.CandidateSearchCache;
+import com.example.candidate_registry.service.CandidateSearchIndex;
+import com.example.candidate_registry.service.CandidatesChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class CandidateFacetsTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    CandidateRepository repo;
+
+    @Autowired
+    CandidateSearchCache searchCache;
+
+    @Autowired
+    CandidateSearchIndex index;
+
+    @Autowired
+    CandidateFacets facets;
+
+    @Autowired
+    ApplicationEventPublisher events;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void before() throws Exception {
+        repo.deleteAll();
+        searchCache.clear();
+        index.rebuild();
+        facets.rebuild();
+        upload("external_ref,name,nationality,origin\n" +
+                "CND-001,山田 太郎,日本,東京都\n" +
+                "CND-002,田中 花子,日本,大阪府\n" +
+                "CND-003,Jane Smith,Canada,Toronto\n" +
+                "CND-004,Taro Smith,日本,東京都\n" +
+                "CND-005,No Origin,Canada,\n");
+    }
+
+    @Test
+    public void counters_follow_inserts_and_updates() throws Exception {
+        mockMvc.perform(get("/api/candidates/facets"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.source").value("counters"))
+                .andExpect(jsonPath("$.total").value(5))
+                .andExpect(jsonPath("$.nationality[0].value").value("日本"))
+                .andExpect(jsonPath("$.nationality[0].count").value(3))
+                .andExpect(jsonPath("$.nationality[1].value").value("Canada"))
+                .andExpect(jsonPath("$.nationality[1].count").value(2))
+                .andExpect(jsonPath("$.origin[0].value").value("東京都"))
+                .andExpect(jsonPath("$.origin[0].count").value(2))
+                .andExpect(jsonPath("$.origin[3].value").value(nullValue()));
+
+        // CND-002 moves to Canada, CND-006 is new; the counters move by delta
+        upload("external_ref,name,nationality,origin\n" +
+                "CND-002,田中 花子,Canada,Vancouver\n" +
+                "CND-006,Lee,Korea,Seoul\n");
+        mockMvc.perform(get("/api/candidates/facets").param("limit", "2"))
+                .andExpect(jsonPath("$.total").value(6))
+                .andExpect(jsonPath("$.nationality.length()").value(2))
+                .andExpect(jsonPath("$.nationality[0].value").value("Canada"))
+                .andExpect(jsonPath("$.nationality[0].count").value(3))
+                .andExpect(jsonPath("$.nationality[1].value").value("日本"))
+                .andExpect(jsonPath("$.nationality[1].count").value(2));
+
+        // a rebuild from the table gives the same counts
+        mockMvc.perform(post("/api/candidates/facets/rebuild"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(6))
+                .andExpect(jsonPath("$.nationality[0].count").value(3))
+                .andExpect(jsonPath("$.nationality[2].value").value("Korea"))
+                .andExpect(jsonPath("$.origin.length()").value(5));
+    }
+
+    @Test
+    public void name_filter_uses_the_index_or_a_scan() throws Exception {
+        mockMvc.perform(get("/api/candidates/facets").param("name", "smith"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.source").value("index"))
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.nationality.length()").value(2));
+
+        // one character is too short for the index
+        mockMvc.perform(get("/api/candidates/facets").param("name", "田"))
+                .andExpect(jsonPath("$.source").value("scan"))
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.nationality[0].value").value("日本"))
+                .andExpect(jsonPath("$.nationality[0].count").value(2));
+
+        mockMvc.perform(get("/api/candidates/facets").param("name", "nobody"))
+                .andExpect(jsonPath("$.total").value(0))
+                .andExpect(jsonPath("$.nationality.length()").value(0));
+    }
+
+    @Test
+    public void rebuild_waits_for_a_committed_change_to_be_applied() throws Exception {
+        CountDownLatch committed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (ExecutorService threads = Executors.newFixedThreadPool(2)) {
+            // an upload chunk that has committed but whose listeners have not run yet
+            Future<?> upload = threads.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(tx -> {
+                Candidate c = new Candidate();
+                c.setExternalRef("CND-006");
+                c.setName("Lee");
+                c.setNationality("Korea");
+                c.setOrigin("Seoul");
+                repo.save(c);
+                events.publishEvent(new CandidatesChangedEvent(List.of(new CandidatesChangedEvent.Change(c.getId(),
+                        null, new CandidateFields("Lee", "Korea", "Seoul")))));
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public int getOrder() {
+                        return 0;
+                    }
+
+                    @Override
+                    public void afterCommit() {
+                        committed.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+            }));
+            committed.await();
+
+            // the row is in the table but its delta is still to come: the recount must wait
+            Future<?> rebuild = threads.submit(facets::rebuild);
+            try {
+                assertThrows(TimeoutException.class, () -> rebuild.get(300, TimeUnit.MILLISECONDS));
+            } finally {
+                release.countDown();
+            }
+            upload.get(10, TimeUnit.SECONDS);
+            rebuild.get(10, TimeUnit.SECONDS);
+        }
+        CandidateFacetCounts counts = facets.counts("", 0);
+        assertEquals(6, counts.total);
+        assertEquals(1, counts.nationality.stream().filter(b -> "Korea".equals(b.value)).findFirst()
+                .orElseThrow().count);
+    }
+
+    private void upload(String csv) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "c.csv", "text/csv",
+                csv.getBytes(StandardCharsets.UTF_8));
+        mockMvc.perform(multipart("/api/candidates/csv/upload").file(file)).andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.candidate_registry;
+
+import com.example.candidate_registry.repository.CandidateRepository;
+import com.example.candidate_registry.service.CandidateCounts;
+import com.example.candidate_registry.service.CandidateSearchCache;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class CandidateListApiTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    CandidateRepository repo;
+
+    @Autowired
+    CandidateSearchCache searchCache;
+
+    @Autowired
+    CandidateCounts counts;
+
+    @BeforeEach
+    public void before() throws Exception {
+        repo.deleteAll();
+        searchCache.clear();
+        counts.rebuild();
+        StringBuilder csv = new StringBuilder("external_ref,name,age,nationality,origin,notes\n");
+        for (int i = 1; i <= 25; i++)
+            csv.append(String.format("CND-%03d,Name %d,%d,Japan,Tokyo,%n", i, i % 5, 20 + i));
+        MockMultipartFile file = new MockMultipartFile("file", "c.csv", "text/csv", csv.toString().getBytes());
+        mockMvc.perform(multipart("/api/candidates/csv/upload").file(file)).andExpect(status().isOk());
+    }
+
+    @Test
+    public void list_default_sort_by_external_ref() throws Exception {
+        mockMvc.perform(get("/api/candidates").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].externalRef", contains("CND-001", "CND-002")))
+                .andExpect(jsonPath("$.totalElements").value(25));
+        mockMvc.perform(get("/candidates"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void keyset_paging_walks_every_row_once() throws Exception {
+        // sort by name: many ties, so the id tie-breaker decides the order
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            var req = get("/api/candidates").param("paging", "keyset").param("size", "4")
+                    .param("sort", "name").param("dir", "desc");
+            if (cursor != null)
+                req.param("cursor", cursor);
+            String body = mockMvc.perform(req)
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.totalElements").doesNotExist())
+                    .andReturn().getResponse().getContentAsString();
+            seen.addAll(JsonPath.read(body, "$.content[*].externalRef"));
+            cursor = JsonPath.read(body, "$.nextCursor");
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(7, pages);
+        assertEquals(25, seen.size());
+        assertEquals(25, seen.stream().distinct().count());
+        assertEquals(List.of("CND-024", "CND-019", "CND-014", "CND-009", "CND-004"), seen.subList(0, 5));
+    }
+
+    @Test
+    public void keyset_paging_rejects_bad_input() throws Exception {
+        mockMvc.perform(get("/api/candidates").param("paging", "keyset").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("INVALID_CURSOR"));
+        mockMvc.perform(get("/api/candidates").param("paging", "keyset").param("sort", "age"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("INVALID_SORT"));
+    }
+
+    @Test
+    public void list_omits_notes_unless_requested() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "n.csv", "text/csv",
+                "external_ref,name,notes\nCND-001,Name 1,long note\n".getBytes());
+        mockMvc.perform(multipart("/api/candidates/csv/upload").file(file)).andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/candidates").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].externalRef").value("CND-001"))
+                .andExpect(jsonPath("$.content[0].notes").doesNotExist());
+        mockMvc.perform(get("/api/candidates").param("size", "1").param("fields", "external_ref,notes"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].notes").value("long note"))
+                .andExpect(jsonPath("$.content[0].name").doesNotExist());
+        mockMvc.perform(get("/api/candidates").param("paging", "keyset").param("size", "1").param("fields", "name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].name").value("Name 1"))
+                .andExpect(jsonPath("$.content[0].externalRef").doesNotExist());
+        mockMvc.perform(get("/api/candidates").param("fields", "password"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("INVALID_FIELDS"));
+
+        mockMvc.perform(get("/api/candidates/CND-001"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.notes").value("long note"));
+        mockMvc.perform(get("/api/candidates/CND-999"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.candidate_registry;
+
+import com.example.candidate_registry.repository.CandidateRepository;
+import com.example.candidate_registry.service.CandidateSearchCache;
+import com.example.candidate_registry.service.CandidateService;
+import com.example.candidate_registry.service.ErrorReportStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.search.Search;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class CandidateMetricsTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    CandidateRepository repo;
+
+    @Autowired
+    CandidateSearchCache searchCache;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @Autowired
+    CandidateService service;
+
+    @MockitoSpyBean
+    ErrorReportStore errorReports;
+
+    @BeforeEach
+    public void before() {
+        Mockito.reset(errorReports);
+        repo.deleteAll();
+        searchCache.clear();
+    }
+
+    @Test
+    public void upload_records_phases_rows_and_error_codes() throws Exception {
+        double missing = count("candidates.upload.errors", "code", "REQ_MISSING");
+        double mismatch = count("candidates.upload.errors", "code", "TYPE_MISMATCH");
+        long uploads = timerCount(registry.find("candidates.upload").tag("outcome", "completed"));
+
+        String csv = "external_ref,name,age\n" +
+                "CND-001,Jane,31\n" +
+                "CND-002,,31\n" +
+                "CND-003,Ken,abc\n";
+        MockMultipartFile file = new MockMultipartFile("file", "c.csv", "text/csv", csv.getBytes());
+        mockMvc.perform(multipart("/api/candidates/csv/upload").file(file))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.phaseTimings.parse").isNumber())
+                .andExpect(jsonPath("$.phaseTimings.save").isNumber());
+
+        assertEquals(missing + 1, count("candidates.upload.errors", "code", "REQ_MISSING"));
+        assertEquals(mismatch + 1, count("candidates.upload.errors", "code", "TYPE_MISMATCH"));
+        assertEquals(uploads + 1, timerCount(registry.find("candidates.upload").tag("outcome", "completed")));
+        assertTrue(registry.find("candidates.upload.phase").tag("phase", "lookup").timer().count() > 0);
+
+        mockMvc.perform(get("/actuator/metrics/candidates.upload.errors").param("tag", "code:REQ_MISSING"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.measurements[0].value").value(missing + 1));
+    }
+
+    @Test
+    public void refused_files_and_errors_are_told_apart() throws Exception {
+        long rejected = timerCount(registry.find("candidates.upload").tag("outcome", "rejected"));
+        long failed = timerCount(registry.find("candidates.upload").tag("outcome", "failed"));
+
+        MockMultipartFile malformed = new MockMultipartFile("file", "c.csv", "text/csv",
+                "name,age\nJane,31\n".getBytes());
+        mockMvc.perform(multipart("/api/candidates/csv/upload").file(malformed))
+                .andExpect(jsonPath("$.error").value("MALFORMED_CSV"));
+        assertEquals(rejected + 1, timerCount(registry.find("candidates.upload").tag("outcome", "rejected")));
+        assertEquals(failed, timerCount(registry.find("candidates.upload").tag("outcome", "failed")));
+
+        doThrow(new UncheckedIOException(new IOException("disk full"))).when(errorReports).create();
+        MockMultipartFile valid = new MockMultipartFile("file", "c.csv", "text/csv",
+                "external_ref,name,age\nCND-001,Jane,31\n".getBytes());
+        assertThrows(IOException.class, () -> service.uploadCsv(valid, ""));
+        assertEquals(rejected + 1, timerCount(registry.find("candidates.upload").tag("outcome", "rejected")));
+        assertEquals(failed + 1, timerCount(registry.find("candidates.upload").tag("outcome", "failed")));
+    }
+
+    @Test
+    public void search_and_export_are_timed() throws Exception {
+        long searches = timerCount(registry.find("candidates.search")
+                .tags("filters", "name+origin", "paging", "offset", "cache", "miss"));
+        mockMvc.perform(get("/api/candidates").param("name", "a").param("origin", "b"))
+                .andExpect(status().isOk());
+        assertEquals(searches + 1, timerCount(registry.find("candidates.search")
+                .tags("filters", "name+origin", "paging", "offset", "cache", "miss")));
+
+        double bytes = registry.find("candidates.export.bytes").summaries().stream()
+                .mapToDouble(s -> s.totalAmount()).sum();
+        MvcResult async = mockMvc.perform(get("/api/candidates/csv/download"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(async)).andReturn().getResponse().getContentAsString();
+        assertEquals(bytes + body.length(), registry.find("candidates.export.bytes").summary().totalAmount());
+    }
+
+    private double count(String name, String tag, String value) {
+        var counter = registry.find(name).tag(tag, value).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private static long timerCount(Search search) {
+        var timer = search.timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.candidate_registry;
+
+import com.example.candidate_registry.repository.CandidateRepository;
+import com.example.candidate_registry.service.CandidateSearchCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class CandidateSearchCacheTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    CandidateRepository repo;
+
+    @Autowired
+    CandidateSearchCache searchCache;
+
+    @BeforeEach
+    public void before() throws Exception {
+        repo.deleteAll();
+        searchCache.clear();
+        upload("external_ref,name,age,nationality,origin,notes\n" +
+                "CND-001,Taro,31,Japan,Tokyo,\n" +
+                "CND-002,Jane,40,Canada,Toronto,\n");
+    }
+
+    @Test
+    public void repeated_search_is_served_from_cache() throws Exception {
+        CandidateSearchCache.Stats before = searchCache.stats();
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/api/candidates").param("nationality", "japan"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content[*].externalRef", contains("CND-001")));
+        }
+        CandidateSearchCache.Stats after = searchCache.stats();
+        assertEquals(1, after.misses() - before.misses());
+        assertEquals(2, after.hits() - before.hits());
+
+        mockMvc.perform(get("/api/candidates/search-cache/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hits").value(after.hits()));
+    }
+
+    @Test
+    public void upload_invalidates_only_matching_pages() throws Exception {
+        mockMvc.perform(get("/api/candidates").param("nationality", "japan"))
+                .andExpect(jsonPath("$.totalElements").value(1));
+        mockMvc.perform(get("/api/candidates").param("nationality", "canada"))
+                .andExpect(jsonPath("$.totalElements").value(1));
+
+        upload("external_ref,name,age,nationality,origin,notes\n" +
+                "CND-003,Hanako,28,Japan,Osaka,\n");
+
+        CandidateSearchCache.Stats before = searchCache.stats();
+        mockMvc.perform(get("/api/candidates").param("nationality", "japan"))
+                .andExpect(jsonPath("$.totalElements").value(2));
+        mockMvc.perform(get("/api/candidates").param("nationality", "canada"))
+                .andExpect(jsonPath("$.totalElements").value(1));
+        CandidateSearchCache.Stats after = searchCache.stats();
+        assertEquals(1, after.misses() - before.misses());
+        assertEquals(1, after.hits() - before.hits());
+    }
+
+    @Test
+    public void accent_and_width_variants_invalidate_cached_pages() throws Exception {
+        mockMvc.perform(get("/api/candidates").param("name", "jose"));
+        mockMvc.perform(get("/api/candidates").param("name", "maria"));
+
+        // the MySQL collation matches these against the cached filters
+        upload("external_ref,name,age,nationality,origin,notes\n" +
+                "CND-003,José García,29,Mexico,Monterrey,\n" +
+                "CND-004,ＭＡＲＩＡ Silva,41,Brazil,Recife,\n");
+
+        CandidateSearchCache.Stats before = searchCache.stats();
+        mockMvc.perform(get("/api/candidates").param("name", "jose"));
+        mockMvc.perform(get("/api/candidates").param("name", "maria"));
+        CandidateSearchCache.Stats after = searchCache.stats();
+        assertEquals(2, after.misses() - before.misses());
+    }
+
+    private void upload(String csv) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "c.csv", "text/csv",
+                csv.getBytes(StandardCharsets.UTF_8));
+        mockMvc.perform(multipart("/api/candidates/csv/upload").file(file)).andExpect(status().isOk());
+    }
+}
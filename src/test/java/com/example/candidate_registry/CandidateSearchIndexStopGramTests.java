@@ -0,0 +1,81 @@
+package com.example.candidate_registry;
+
+import com.example.candidate_registry.repository.CandidateRepository;
+import com.example.candidate_registry.service.CandidateSearchCache;
+import com.example.candidate_registry.service.CandidateSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/** Grams in more rows than app.search.index.max-gram-postings narrow nothing. */
+@SpringBootTest(properties = "app.search.index.max-gram-postings=2")
+@AutoConfigureMockMvc
+public class CandidateSearchIndexStopGramTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    CandidateRepository repo;
+
+    @Autowired
+    CandidateSearchCache searchCache;
+
+    @Autowired
+    CandidateSearchIndex index;
+
+    @BeforeEach
+    public void before() throws Exception {
+        repo.deleteAll();
+        searchCache.clear();
+        index.rebuild();
+        upload("external_ref,name,age,nationality,origin,notes\n" +
+                "CND-001,山田　太郎,31,日本,東京都,\n" +
+                "CND-002,田中 花子,28,日本,大阪府,\n" +
+                "CND-003,Jane Smith,40,Canada,Toronto,\n" +
+                "CND-004,ＡＢＣ Taro,35,日本,東京都,\n");
+    }
+
+    @Test
+    public void too_common_gram_is_skipped_not_a_miss() {
+        // 日本 is in three rows: alone it leaves the search to the database
+        assertNull(index.candidateIds("", "日本", ""));
+        // with a selective gram it is only verified
+        assertEquals(1, index.candidateIds("太郎", "日本", "").size());
+        assertEquals(2, index.candidateIds("", "日本", "東京").size());
+        assertEquals(Set.of(), index.candidateIds("鈴木", "日本", ""));
+    }
+
+    @Test
+    public void too_common_gram_stays_skipped_after_updates_and_rebuild() throws Exception {
+        upload("external_ref,name,age,nationality,origin,notes\n" +
+                "CND-003,Jane Smith,40,日本,Toronto,\n");
+        assertNull(index.candidateIds("", "日本", ""));
+        assertEquals(1, index.candidateIds("jane", "日本", "").size());
+
+        index.rebuild();
+        assertNull(index.candidateIds("", "日本", ""));
+        assertEquals(1, index.candidateIds("jane", "日本", "").size());
+        mockMvc.perform(get("/api/candidates").param("nationality", "日本"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(4));
+    }
+
+    private void upload(String csv) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "c.csv", "text/csv",
+                csv.getBytes(StandardCharsets.UTF_8));
+        mockMvc.perform(multipart("/api/candidates/csv/upload").file(file)).andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.candidate_registry;
+
+import com.example.candidate_registry.repository.CandidateRepository;
+import com.example.candidate_registry.service.CandidateSearchCache;
+import com.example.candidate_registry.service.CandidateSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class CandidateSearchIndexTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    CandidateRepository repo;
+
+    @Autowired
+    CandidateSearchCache searchCache;
+
+    @Autowired
+    CandidateSearchIndex index;
+
+    @BeforeEach
+    public void before() throws Exception {
+        repo.deleteAll();
+        searchCache.clear();
+        index.rebuild();
+        upload("external_ref,name,age,nationality,origin,notes\n" +
+                "CND-001,山田　太郎,31,日本,東京都,\n" +
+                "CND-002,田中 花子,28,日本,大阪府,\n" +
+                "CND-003,Jane Smith,40,Canada,Toronto,\n" +
+                "CND-004,ＡＢＣ Taro,35,日本,東京都,\n");
+    }
+
+    @Test
+    public void index_narrows_japanese_two_character_filters() {
+        assertEquals(1, index.candidateIds("田中", "", "").size());
+        assertEquals(2, index.candidateIds("", "", "東京").size());
+        assertEquals(1, index.candidateIds("太郎", "日本", "東京").size());
+        assertEquals(Set.of(), index.candidateIds("鈴木", "", ""));
+        // one-character filters cannot be narrowed alone
+        assertNull(index.candidateIds("田", "", ""));
+    }
+
+    @Test
+    public void index_folds_case_and_full_width_spaces() {
+        assertEquals(1, index.candidateIds("jane", "", "").size());
+        assertEquals(1, index.candidateIds("山田 太郎", "", "").size());
+        assertEquals(1, index.candidateIds("山田　太郎", "", "").size());
+        assertEquals(1, index.candidateIds("ＡＢＣ", "", "").size());
+    }
+
+    @Test
+    public void index_ignores_accents_width_and_kana_like_the_collation() throws Exception {
+        upload("external_ref,name,age,nationality,origin,notes\n" +
+                "CND-005,José García,29,México,Ciudad de México,\n" +
+                "CND-006,ｽｽﾞｷ ﾊﾅｺ,33,日本,京都府,\n" +
+                "CND-007,ＭＡＲＩＡ Ｓｉｌｖａ,41,Brasil,São Paulo,\n");
+        assertEquals(1, index.candidateIds("jose", "", "").size());
+        assertEquals(1, index.candidateIds("GARCIA", "mexico", "").size());
+        assertEquals(1, index.candidateIds("", "", "sao paulo").size());
+        assertEquals(1, index.candidateIds("maria silva", "", "").size());
+        assertEquals(1, index.candidateIds("Ｓｉｌｖａ", "", "").size());
+        // half-width katakana, voiced or not, and the hiragana spelling
+        assertEquals(1, index.candidateIds("スズキ", "", "").size());
+        assertEquals(1, index.candidateIds("すすき", "", "").size());
+        assertEquals(1, index.candidateIds("ﾊﾅｺ", "", "").size());
+    }
+
+    @Test
+    public void index_follows_updates_and_rebuilds() throws Exception {
+        upload("external_ref,name\n" +
+                "CND-002,鈴木 花子\n");
+        assertEquals(Set.of(), index.candidateIds("田中", "", ""));
+        assertEquals(1, index.candidateIds("鈴木", "", "").size());
+
+        index.rebuild();
+        assertEquals(Set.of(), index.candidateIds("田中", "", ""));
+        assertEquals(1, index.candidateIds("鈴木", "", "").size());
+    }
+
+    @Test
+    public void api_search_uses_index_results() throws Exception {
+        mockMvc.perform(get("/api/candidates").param("name", "山田　太郎").param("sort", "name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].externalRef", contains("CND-001")));
+        mockMvc.perform(get("/api/candidates").param("origin", "東京").param("sort", "name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(2));
+    }
+
+    private void upload(String csv) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "c.csv", "text/csv",
+                csv.getBytes(StandardCharsets.UTF_8));
+        mockMvc.perform(multipart("/api/candidates/csv/upload").file(file)).andExpect(status().isOk());
+    }
+}
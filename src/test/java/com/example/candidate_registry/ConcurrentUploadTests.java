@@ -0,0 +1,168 @@
+package com.example.candidate_registry;
+
+import com.example.candidate_registry.dto.CsvUploadResult;
+import com.example.candidate_registry.entity.Candidate;
+import com.example.candidate_registry.repository.CandidateBatchRepository;
+import com.example.candidate_registry.repository.CandidateRepository;
+import com.example.candidate_registry.service.CandidateService;
+import com.example.candidate_registry.service.ExternalRefLocks;
+import com.example.candidate_registry.service.UploadProgress;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+// REPEATABLE READ pool connections, as with InnoDB's default isolation
+@SpringBootTest(properties = {
+        "app.upload.batch-size=20",
+        "spring.datasource.hikari.transaction-isolation=TRANSACTION_REPEATABLE_READ"
+})
+public class ConcurrentUploadTests {
+
+    private static final int UPLOADERS = 8;
+
+    private static final int SHARED = 60;
+
+    private static final int OWN = 60;
+
+    @Autowired
+    CandidateService service;
+
+    @Autowired
+    CandidateRepository repo;
+
+    @Autowired
+    ExternalRefLocks locks;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @MockitoSpyBean
+    CandidateBatchRepository batchRepo;
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(UPLOADERS);
+
+    @BeforeEach
+    public void before() {
+        Mockito.reset(batchRepo);
+        repo.deleteAll();
+    }
+
+    @AfterEach
+    public void after() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void overlapping_uploads_lose_and_duplicate_nothing() throws Exception {
+        // every uploader writes the shared keys (in a different order) and keys of its own
+        List<Future<CsvUploadResult>> results = new ArrayList<>();
+        for (int u = 0; u < UPLOADERS; u++) {
+            StringBuilder csv = new StringBuilder("external_ref,name,age,nationality,origin\n");
+            for (int i = 0; i < SHARED; i++) {
+                int k = (i + u * 7) % SHARED;
+                csv.append("SHARED-").append(k).append(",uploader ").append(u).append(",30,日本,東京都\n");
+            }
+            for (int i = 0; i < OWN; i++)
+                csv.append("U").append(u).append("-").append(i).append(",uploader ").append(u).append(",30,日本,東京都\n");
+            String body = csv.toString();
+            results.add(pool.submit(() -> upload(body)));
+        }
+        for (Future<CsvUploadResult> f : results) {
+            CsvUploadResult r = f.get(60, TimeUnit.SECONDS);
+            assertEquals(0, r.failureCount);
+            assertEquals(SHARED + OWN, r.successCount);
+        }
+
+        assertEquals(SHARED + UPLOADERS * OWN, repo.count());
+        // each shared row holds the complete write of one uploader
+        for (Candidate c : repo.findAll()) {
+            if (c.getExternalRef().startsWith("U"))
+                assertEquals("uploader " + c.getExternalRef().substring(1, c.getExternalRef().indexOf('-')),
+                        c.getName());
+            else
+                assertTrue(c.getName().startsWith("uploader "));
+        }
+    }
+
+    @Test
+    public void only_uploads_with_reserved_keys_wait() throws Exception {
+        Future<CsvUploadResult> overlapping;
+        try (ExternalRefLocks.Lease held = locks.acquire(List.of("CND-001"))) {
+            CsvUploadResult disjoint = pool
+                    .submit(() -> upload("external_ref,name\nCND-100,Jane\n"))
+                    .get(10, TimeUnit.SECONDS);
+            assertEquals(1, disjoint.successCount);
+
+            overlapping = pool.submit(() -> upload("external_ref,name\nCND-001,John\nCND-101,Mary\n"));
+            assertThrows(TimeoutException.class, () -> overlapping.get(300, TimeUnit.MILLISECONDS));
+            assertEquals(1, repo.count());
+            // parsed by now and waiting for the key; hold it for a known time
+            Thread.sleep(300);
+        }
+        CsvUploadResult r = overlapping.get(10, TimeUnit.SECONDS);
+        assertEquals(2, r.successCount);
+        assertTrue(r.phaseTimings.get("key_wait") >= 300);
+        assertEquals(3, repo.count());
+    }
+
+    @Test
+    public void case_and_accent_variants_wait_for_each_other() throws Exception {
+        // one unique key under MySQL's case- and accent-insensitive collation
+        Future<?> variant;
+        try (ExternalRefLocks.Lease held = locks.acquire(List.of("CND-É01"))) {
+            variant = pool.submit(() -> {
+                try (ExternalRefLocks.Lease other = locks.acquire(List.of("cnd-e01"))) {
+                    return null;
+                }
+            });
+            assertThrows(TimeoutException.class, () -> variant.get(300, TimeUnit.MILLISECONDS));
+        }
+        variant.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void key_inserted_by_an_uncoordinated_writer_becomes_an_update() throws Exception {
+        // another writer (not holding the key lease) commits the same external_ref after the
+        // upload has looked it up and before it inserts
+        boolean[] raced = new boolean[1];
+        doAnswer(inv -> {
+            if (!raced[0]) {
+                raced[0] = true;
+                pool.submit(() -> jdbc.update("insert into candidate (external_ref, name) values ('CND-900', 'other')"))
+                        .get(10, TimeUnit.SECONDS);
+            }
+            return inv.callRealMethod();
+        }).when(batchRepo).insertAll(any());
+
+        CsvUploadResult r = upload("external_ref,name\nCND-900,Jane\nCND-901,John\n");
+
+        assertEquals(0, r.failureCount);
+        assertEquals(2, r.successCount);
+        assertEquals(2, repo.count());
+        assertEquals("Jane", repo.findByExternalRef("CND-900").orElseThrow().getName());
+    }
+
+    private CsvUploadResult upload(String csv) throws Exception {
+        byte[] bytes = csv.getBytes(StandardCharsets.UTF_8);
+        return service.uploadCsv(new ByteArrayInputStream(bytes), bytes.length, "", true, new UploadProgress());
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.candidate_registry;
+
+import com.example.candidate_registry.repository.CandidateRepository;
+import com.example.candidate_registry.repository.UploadReceiptRepository;
+import com.example.candidate_registry.service.CandidateSearchCache;
+import com.example.candidate_registry.service.RegistryVersion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// one event per row, so an upload publishes several events in its transaction; receipts on,
+// as a replayed upload must leave the version alone
+@SpringBootTest(properties = { "app.upload.batch-size=1", "app.upload.idempotency.enabled=true" })
+@AutoConfigureMockMvc
+public class ConditionalGetTests {
+
+    private static final String CSV = "external_ref,name,age,nationality,origin,notes\n" +
+            "CND-001,Taro,31,Japan,Tokyo,\n" +
+            "CND-002,Jane,40,Canada,Toronto,\n";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    CandidateRepository repo;
+
+    @Autowired
+    UploadReceiptRepository receipts;
+
+    @Autowired
+    CandidateSearchCache searchCache;
+
+    @Autowired
+    RegistryVersion version;
+
+    @BeforeEach
+    public void before() throws Exception {
+        repo.deleteAll();
+        receipts.deleteAll();
+        searchCache.clear();
+        upload(CSV);
+    }
+
+    @Test
+    public void list_answers_304_without_running_the_search() throws Exception {
+        MockHttpServletResponse first = mockMvc.perform(get("/api/candidates"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn().getResponse();
+        String etag = first.getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        CandidateSearchCache.Stats before = searchCache.stats();
+        mockMvc.perform(get("/api/candidates").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/api/candidates").param("paging", "keyset").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        CandidateSearchCache.Stats after = searchCache.stats();
+        assertEquals(before.hits() + before.misses(), after.hits() + after.misses());
+    }
+
+    @Test
+    public void upload_that_changes_rows_moves_the_version() throws Exception {
+        MockHttpServletResponse first = mockMvc.perform(get("/api/candidates")).andReturn().getResponse();
+        String etag = first.getHeader(HttpHeaders.ETAG);
+        String lastModified = first.getHeader(HttpHeaders.LAST_MODIFIED);
+
+        // the same file again is answered from its receipt and writes nothing
+        upload(CSV);
+        mockMvc.perform(get("/api/candidates").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/candidates").header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+                .andExpect(status().isNotModified());
+
+        // Last-Modified has second resolution: a change in the next second moves it
+        Thread.sleep(1000 - System.currentTimeMillis() % 1000);
+        upload("external_ref,name,age,nationality,origin,notes\n" +
+                "CND-003,Hanako,28,Japan,Osaka,\n");
+        MockHttpServletResponse changed = mockMvc.perform(get("/api/candidates")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(3))
+                .andReturn().getResponse();
+        assertNotEquals(etag, changed.getHeader(HttpHeaders.ETAG));
+        mockMvc.perform(get("/api/candidates").header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void version_moves_once_per_commit_and_never_ahead_of_the_clock() throws Exception {
+        RegistryVersion.Stamp before = version.current();
+        StringBuilder csv = new StringBuilder("external_ref,name,age,nationality,origin,notes\n");
+        for (int i = 10; i < 30; i++)
+            csv.append("CND-0").append(i).append(",Name ").append(i).append(",30,Japan,Tokyo,\n");
+        upload(csv.toString());
+
+        RegistryVersion.Stamp after = version.current();
+        assertEquals(counter(before) + 1, counter(after));
+        assertTrue(after.lastModified() <= System.currentTimeMillis());
+        long lastModified = mockMvc.perform(get("/api/candidates")).andReturn().getResponse()
+                .getDateHeader(HttpHeaders.LAST_MODIFIED);
+        assertEquals(after.lastModified(), lastModified);
+    }
+
+    @Test
+    public void export_and_page_answer_304() throws Exception {
+        String etag = mockMvc.perform(get("/api/candidates/csv/download"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        mockMvc.perform(get("/api/candidates/csv/download").param("nationality", "japan")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(get("/candidates").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/candidates"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+    }
+
+    private static long counter(RegistryVersion.Stamp stamp) {
+        String etag = stamp.etag();
+        return Long.parseLong(etag.substring(etag.lastIndexOf('-') + 1, etag.length() - 1));
+    }
+
+    private void upload(String csv) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "c.csv", "text/csv",
+                csv.getBytes(StandardCharsets.UTF_8));
+        mockMvc.perform(multipart("/api/candidates/csv/upload").file(file)).andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.candidate_registry;
+
+import com.example.candidate_registry.repository.CandidateRepository;
+import com.example.candidate_registry.repository.UploadCheckpointRepository;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "app.upload.commit.chunk-rows=2",
+        "app.upload.batch-size=1"
+})
+@AutoConfigureMockMvc
+public class CsvChunkedUploadTests {
+
+    private static final String CSV = "external_ref,name,age\n" +
+            "CND-001,Jane,31\n" +
+            "CND-002,,40\n" +
+            "CND-003,John,25\n" +
+            "CND-004,Mary,52\n" +
+            "CND-005,Ken,19\n";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    CandidateRepository repo;
+
+    @MockitoSpyBean
+    UploadCheckpointRepository checkpoints;
+
+    @BeforeEach
+    public void before() {
+        Mockito.reset(checkpoints);
+        repo.deleteAll();
+        checkpoints.deleteAll();
+    }
+
+    @Test
+    public void rows_are_committed_in_chunks() throws Exception {
+        String body = upload(CSV);
+        assertEquals(4, (int) JsonPath.read(body, "$.successCount"));
+        assertEquals(1, (int) JsonPath.read(body, "$.failureCount"));
+        assertEquals(3, (int) JsonPath.read(body, "$.committedChunks"));
+        assertNotNull(JsonPath.read(body, "$.uploadId"));
+        assertNull(JsonPath.read(body, "$.resumedAfterRow"));
+        assertEquals(4, repo.count());
+        // the checkpoint is gone once the import completes
+        assertTrue(checkpoints.find(JsonPath.read(body, "$.fileSha256")).isEmpty());
+    }
+
+    @Test
+    public void interrupted_upload_resumes_after_last_committed_chunk() throws Exception {
+        // the second chunk fails while saving its checkpoint and is rolled back
+        doCallRealMethod().doThrow(new IllegalStateException("connection lost")).when(checkpoints).save(any());
+        mockMvc.perform(multipart("/api/candidates/csv/upload").file(file(CSV)))
+                .andExpect(status().isBadRequest());
+        assertEquals(1, repo.count());
+
+        Mockito.reset(checkpoints);
+        String body = upload(CSV);
+        int resumedAfter = JsonPath.read(body, "$.resumedAfterRow");
+        assertTrue(resumedAfter > 0);
+        assertEquals(4, (int) JsonPath.read(body, "$.successCount"));
+        assertEquals(0, (int) JsonPath.read(body, "$.unchangedCount"));
+        assertEquals(1, (int) JsonPath.read(body, "$.failureCount"));
+        assertEquals(3, (int) JsonPath.read(body, "$.committedChunks"));
+        assertEquals(4, repo.count());
+
+        // the report written before the interruption is continued, not restarted
+        String path = URI.create(JsonPath.read(body, "$.errorReport.downloadUrl")).getPath();
+        String report = mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        String[] lines = report.strip().split("\r?\n");
+        assertEquals(2, lines.length, report);
+        assertTrue(lines[0].startsWith("row_number,error_code"));
+        assertTrue(lines[1].contains("CND-002"));
+    }
+
+    private String upload(String csv) throws Exception {
+        return mockMvc.perform(multipart("/api/candidates/csv/upload").file(file(csv)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    private static MockMultipartFile file(String csv) {
+        return new MockMultipartFile("file", "c.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8));
+    }
+}
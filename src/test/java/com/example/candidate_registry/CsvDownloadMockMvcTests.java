@@ -0,0 +1,105 @@
+package com.example.candidate_registry;
+
+import com.example.candidate_registry.repository.CandidateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// tiny chunk and range sizes so that the exports walk several keyset chunks and id ranges
+@SpringBootTest(properties = { "app.export.chunk-size=2", "app.export.parallel.range-size=2",
+        "app.export.parallel.max-in-flight=2" })
+@AutoConfigureMockMvc
+public class CsvDownloadMockMvcTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    CandidateRepository repo;
+
+    @BeforeEach
+    public void before() throws Exception {
+        repo.deleteAll();
+        String csv = "external_ref,name,age,nationality,origin,notes\n" +
+                "CND-001,Jane Smith,31,Canada,Toronto,\"Has \"\"management\"\" experience\"\n" +
+                "CND-002,John Doe,28,USA,New York,\n" +
+                "CND-003,Kai Lin,,Japan,Osaka,Excellent adaptability\n" +
+                "CND-004,Mei Lin,40,Japan,Kyoto,\n" +
+                "CND-005,Ken Sato,35,Japan,Tokyo,\n";
+        MockMultipartFile file = new MockMultipartFile("file", "c.csv", "text/csv", csv.getBytes());
+        mockMvc.perform(multipart("/api/candidates/csv/upload").file(file)).andExpect(status().isOk());
+    }
+
+    @Test
+    public void download_all_rows() throws Exception {
+        String body = download("/api/candidates/csv/download");
+        assertEquals("external_ref,name,age,nationality,origin,notes\r\n" +
+                "CND-001,Jane Smith,31,Canada,Toronto,\"Has \"\"management\"\" experience\"\r\n" +
+                "CND-002,John Doe,28,USA,New York,\r\n" +
+                "CND-003,Kai Lin,,Japan,Osaka,Excellent adaptability\r\n" +
+                "CND-004,Mei Lin,40,Japan,Kyoto,\r\n" +
+                "CND-005,Ken Sato,35,Japan,Tokyo,\r\n", body);
+    }
+
+    @Test
+    public void download_applies_filters() throws Exception {
+        String body = download("/api/candidates/csv/download?nationality=japan&name=lin");
+        assertEquals("external_ref,name,age,nationality,origin,notes\r\n" +
+                "CND-003,Kai Lin,,Japan,Osaka,Excellent adaptability\r\n" +
+                "CND-004,Mei Lin,40,Japan,Kyoto,\r\n", body);
+    }
+
+    @Test
+    public void parallel_download_matches_sequential() throws Exception {
+        assertEquals(download("/api/candidates/csv/download"), download("/api/candidates/csv/download?parallel=true"));
+        assertEquals(download("/api/candidates/csv/download?nationality=japan&name=lin"),
+                download("/api/candidates/csv/download?nationality=japan&name=lin&parallel=true"));
+        assertEquals("external_ref,name,age,nationality,origin,notes\r\n",
+                download("/api/candidates/csv/download?name=nobody&parallel=true"));
+    }
+
+    @Test
+    public void download_gzip_when_accepted() throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/candidates/csv/download?nationality=japan")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] gz = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andReturn().getResponse().getContentAsByteArray();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gz))) {
+            assertEquals("external_ref,name,age,nationality,origin,notes\r\n" +
+                    "CND-003,Kai Lin,,Japan,Osaka,Excellent adaptability\r\n" +
+                    "CND-004,Mei Lin,40,Japan,Kyoto,\r\n" +
+                    "CND-005,Ken Sato,35,Japan,Tokyo,\r\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+        private String download(String url) throws Exception {
+        MvcResult started = mockMvc.perform(get(url))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult done = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv;charset=utf-8"))
+                .andReturn();
+        return done.getResponse().getContentAsString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.candidate_registry;
+
+import com.example.candidate_registry.dto.CsvUploadResult;
+import com.example.candidate_registry.entity.Candidate;
+import com.example.candidate_registry.repository.CandidateRepository;
+import com.example.candidate_registry.service.CandidateService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Round-trip benchmark for the batched upsert against H2 in MySQL mode.
+ * Every execute/executeQuery/executeUpdate/executeBatch call counts as one round trip.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:batchbench;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "app.upload.max-rows=20000",
+        "app.upload.max-size-bytes=20971520"
+})
+public class CsvUploadBatchTests {
+
+    private static final Logger log = LoggerFactory.getLogger(CsvUploadBatchTests.class);
+
+    private static final int ROWS = 10_000;
+
+    static final AtomicLong roundTrips = new AtomicLong();
+
+    @Autowired
+    CandidateService service;
+
+    @Autowired
+    CandidateRepository repo;
+
+    @BeforeEach
+    public void before() {
+        repo.deleteAll();
+    }
+
+    @Test
+    public void upload_inserts_then_updates_in_batches() throws Exception {
+        CsvUploadResult inserted = upload(csv("Name"));
+        assertEquals(ROWS, inserted.successCount);
+        assertEquals(ROWS, repo.count());
+
+        CsvUploadResult updated = upload(csv("Renamed"));
+        assertEquals(ROWS, updated.successCount);
+        assertEquals(ROWS, repo.count());
+        Candidate c = repo.findByExternalRef("CND-00042").orElseThrow();
+        assertEquals("Renamed 42", c.getName());
+
+        // the same file again: one lookup per chunk and no writes at all
+        CsvUploadResult unchanged = upload(csv("Renamed"));
+        assertEquals(ROWS, unchanged.successCount);
+        assertEquals(ROWS, unchanged.unchangedCount);
+        assertEquals(ROWS / 1000, roundTrips.get());
+    }
+
+    private CsvUploadResult upload(String csv) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "c.csv", "text/csv",
+                csv.getBytes(StandardCharsets.UTF_8));
+        roundTrips.set(0);
+        long start = System.nanoTime();
+        CsvUploadResult res = service.uploadCsv(file, "");
+        long ms = (System.nanoTime() - start) / 1_000_000;
+        long trips = roundTrips.get();
+        log.info("upload {} rows: {} ms, {} round trips", ROWS, ms, trips);
+        // one lookup plus one insert or update batch per chunk, instead of two statements per row
+        assertTrue(trips < ROWS / 100, "expected batched round trips but got " + trips);
+        return res;
+    }
+
+    private static String csv(String namePrefix) {
+        StringBuilder sb = new StringBuilder("external_ref,name,age,nationality,origin,notes\n");
+        for (int i = 0; i < ROWS; i++) {
+            sb.append(String.format("CND-%05d,%s %d,%d,Japan,Tokyo,note %d%n", i, namePrefix, i, 20 + i % 40, i));
+        }
+        return sb.toString();
+    }
+
+    @TestConfiguration
+    static class RoundTripCounterConfig {
+        @Bean
+        static BeanPostProcessor roundTripCounter() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource ds)
+                        return wrap(DataSource.class, ds);
+                    return bean;
+                }
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        static <T> T wrap(Class<T> type, T target) {
+            InvocationHandler h = (proxy, method, args) -> {
+                String m = method.getName();
+                if (target instanceof Statement && m.startsWith("execute"))
+                    roundTrips.incrementAndGet();
+                Object ret;
+                try {
+                    ret = method.invoke(target, args);
+                } catch (InvocationTargetException ex) {
+                    throw ex.getCause();
+                }
+                if (ret instanceof Connection con && method.getReturnType() == Connection.class)
+                    return wrap(Connection.class, con);
+                if (ret instanceof Statement st && Statement.class.isAssignableFrom(method.getReturnType()))
+                    return wrap((Class<Statement>) method.getReturnType(), st);
+                return ret;
+            };
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, h);
+        }
+    }
+}
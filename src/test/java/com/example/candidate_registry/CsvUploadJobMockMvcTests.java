@@ -0,0 +1,112 @@
+package com.example.candidate_registry;
+
+import com.example.candidate_registry.repository.CandidateRepository;
+import com.example.candidate_registry.service.UploadProgress;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class CsvUploadJobMockMvcTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    CandidateRepository repo;
+
+    @BeforeEach
+    public void before() {
+        repo.deleteAll();
+    }
+
+    @Test
+    public void async_upload_reports_progress_and_result() throws Exception {
+        String csv = "external_ref,name,age,nationality,origin,notes\n" +
+                "CND-001,Jane Smith,31,Canada,Toronto,OK\n" +
+                ",MissingName,25,Japan,Osaka,No extref\n";
+        String jobId = submit(csv);
+        awaitStatus(jobId, "SUCCEEDED");
+
+        mockMvc.perform(get("/api/candidates/csv/upload/jobs/" + jobId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rowsParsed").value(2))
+                .andExpect(jsonPath("$.rowsSucceeded").value(1))
+                .andExpect(jsonPath("$.rowsFailed").value(1));
+        mockMvc.perform(get("/api/candidates/csv/upload/jobs/" + jobId + "/result"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.successCount").value(1))
+                .andExpect(jsonPath("$.failureCount").value(1))
+                .andExpect(jsonPath("$.errorReport.available").value(true));
+    }
+
+    @Test
+    public void job_throughput_covers_the_import_only() throws Exception {
+        // a job still in the queue has not started its import
+        UploadProgress queued = new UploadProgress();
+        assertEquals(0, queued.elapsedMillis());
+        assertEquals(0, queued.rowsPerSecond());
+
+        String jobId = submit("external_ref,name,age\nCND-001,Jane,31\n");
+        awaitStatus(jobId, "SUCCEEDED");
+        String first = mockMvc.perform(get("/api/candidates/csv/upload/jobs/" + jobId))
+                .andReturn().getResponse().getContentAsString();
+        Thread.sleep(100);
+        String later = mockMvc.perform(get("/api/candidates/csv/upload/jobs/" + jobId))
+                .andReturn().getResponse().getContentAsString();
+        // stopped when the import finished, so a finished job's throughput does not decay
+        assertEquals((Integer) JsonPath.read(first, "$.elapsedMs"), JsonPath.read(later, "$.elapsedMs"));
+        assertEquals((Double) JsonPath.read(first, "$.rowsPerSecond"), JsonPath.read(later, "$.rowsPerSecond"));
+    }
+
+    @Test
+    public void async_upload_of_malformed_csv_fails_the_job() throws Exception {
+        String csv = "external_ref,name,age\n" +
+                "CND-001,\"Bad quote,31\n";
+        String jobId = submit(csv);
+        awaitStatus(jobId, "FAILED");
+
+        mockMvc.perform(get("/api/candidates/csv/upload/jobs/" + jobId + "/result"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString("MALFORMED_CSV")));
+    }
+
+    @Test
+    public void unknown_job_is_not_found() throws Exception {
+        mockMvc.perform(get("/api/candidates/csv/upload/jobs/nope"))
+                .andExpect(status().isNotFound());
+    }
+
+    private String submit(String csv) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "c.csv", "text/csv", csv.getBytes());
+        String body = mockMvc.perform(multipart("/api/candidates/csv/upload").file(file).param("async", "true"))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.read(body, "$.jobId");
+    }
+
+    private void awaitStatus(String jobId, String expected) throws Exception {
+        for (int i = 0; i < 100; i++) {
+            String body = mockMvc.perform(get("/api/candidates/csv/upload/jobs/" + jobId))
+                    .andReturn().getResponse().getContentAsString();
+            String status = JsonPath.read(body, "$.status");
+            if (expected.equals(status))
+                return;
+            Thread.sleep(50);
+        }
+        fail("job " + jobId + " did not reach " + expected);
+    }
+}
@@ -1,17 +1,35 @@
 package com.example.candidate_registry;
 
 import com.example.candidate_registry.repository.CandidateRepository;
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
 import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
@@ -72,4 +90,172 @@ public class CsvUploadMockMvcTests {
                 .andExpect(status().isBadRequest())
                 .andExpect(content().string(containsString("MALFORMED_CSV")));
     }
+
+    @Test
+    public void upload_quoted_headers() throws Exception {
+        String csv = "\"external_ref\",\"name\",\"age\"\n" +
+                "CND-001,\"Smith, Jane\",31\n";
+        MockMultipartFile file = new MockMultipartFile("file", "c.csv", "text/csv", csv.getBytes());
+        mockMvc.perform(multipart("/api/candidates/csv/upload").file(file))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"successCount\":1")));
+    }
+
+    @Test
+    public void upload_duplicate_header() throws Exception {
+        String csv = "external_ref,name,name\n" +
+                "CND-001,Jane,Jane\n";
+        MockMultipartFile file = new MockMultipartFile("file", "c.csv", "text/csv", csv.getBytes());
+        mockMvc.perform(multipart("/api/candidates/csv/upload").file(file))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString("duplicate header")));
+    }
+
+    @Test
+    public void upload_missing_required_header() throws Exception {
+        String csv = "name,age\n" +
+                "Jane,31\n";
+        MockMultipartFile file = new MockMultipartFile("file", "c.csv", "text/csv", csv.getBytes());
+        mockMvc.perform(multipart("/api/candidates/csv/upload").file(file))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString("MALFORMED_CSV")));
+    }
+
+    @Test
+    public void upload_error_report_keeps_row_order() throws Exception {
+        // spans several validation chunks, every 7th row lacks a name
+        StringBuilder csv = new StringBuilder("external_ref,name,age,nationality,origin,notes\n");
+        for (int i = 1; i <= 3000; i++)
+            csv.append("CND-").append(i).append(',').append(i % 7 == 0 ? "" : "Name " + i).append(",30,Japan,Tokyo,\n");
+        MockMultipartFile file = new MockMultipartFile("file", "c.csv", "text/csv", csv.toString().getBytes());
+        String body = mockMvc.perform(multipart("/api/candidates/csv/upload").file(file))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"failureCount\":428")))
+                .andReturn().getResponse().getContentAsString();
+
+        String url = JsonPath.read(body, "$.errorReport.downloadUrl");
+        String report = mockMvc.perform(get(URI.create(url).getPath()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        String[] lines = report.split("\r?\n");
+        assertEquals(429, lines.length);
+        for (int i = 1; i < lines.length; i++)
+            assertTrue(lines[i].startsWith((i * 7) + ",REQ_MISSING,"), lines[i]);
+    }
+
+    @Test
+    public void upload_validation_codes_and_messages() throws Exception {
+        String csv = "name,external_ref,age\n" +
+                "\u3000Jane\u3000Smith ,CND-001, +7 \n" +
+                "," + "X".repeat(65) + ",1.5\n" +
+                "Ken,CND-003,1e3\n" +
+                "Mei,CND-004,-1\n" +
+                "Kai,CND-005,99999999999\n";
+        MockMultipartFile file = new MockMultipartFile("file", "c.csv", "text/csv",
+                csv.getBytes(StandardCharsets.UTF_8));
+        String body = mockMvc.perform(multipart("/api/candidates/csv/upload").file(file))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"successCount\":1")))
+                .andReturn().getResponse().getContentAsString();
+        assertEquals("Jane Smith", repo.findByExternalRef("CND-001").orElseThrow().getName());
+        assertEquals(7, repo.findByExternalRef("CND-001").orElseThrow().getAge());
+
+        String url = JsonPath.read(body, "$.errorReport.downloadUrl");
+        String report = mockMvc.perform(get(URI.create(url).getPath()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        String[] lines = report.split("\r?\n");
+        assertEquals(5, lines.length);
+        assertTrue(lines[1].startsWith("2,REQ_MISSING,REQ_MISSING: name is required; LEN_OVER: external_ref > 64; "
+                + "TYPE_MISMATCH: age must be integer,"), lines[1]);
+        assertTrue(lines[2].startsWith("3,TYPE_MISMATCH,TYPE_MISMATCH: age must be integer,"), lines[2]);
+        assertTrue(lines[3].startsWith("4,RANGE_ERROR,RANGE_ERROR: age must be 0..200,"), lines[3]);
+        assertTrue(lines[4].startsWith("5,TYPE_MISMATCH,"), lines[4]);
+    }
+
+    @Test
+    public void error_report_download_supports_gzip_and_ranges() throws Exception {
+        String csv = "external_ref,name,age\n" +
+                "CND-001,,30\n" +
+                "CND-002,Jane,abc\n";
+        MockMultipartFile file = new MockMultipartFile("file", "c.csv", "text/csv", csv.getBytes());
+        String body = mockMvc.perform(multipart("/api/candidates/csv/upload").file(file))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String path = URI.create(JsonPath.read(body, "$.errorReport.downloadUrl")).getPath();
+        assertTrue(path.matches(".*/upload-errors-\\d{8}-\\d{6}-[0-9a-f]{32}\\.csv"), path);
+
+        MockHttpServletResponse plain = mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andReturn().getResponse();
+        byte[] report = plain.getContentAsByteArray();
+        assertEquals(report.length, Long.parseLong(plain.getHeader(HttpHeaders.CONTENT_LENGTH)));
+        assertTrue(new String(report, StandardCharsets.UTF_8).startsWith("row_number,error_code"));
+
+        byte[] gz = mockMvc.perform(get(path).header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gz))) {
+            assertArrayEquals(report, in.readAllBytes());
+        }
+
+        MockHttpServletResponse part = mockMvc.perform(get(path).header(HttpHeaders.RANGE, "bytes=4-13"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 4-13/" + report.length))
+                .andExpect(header().string(HttpHeaders.CONTENT_LENGTH, "10"))
+                .andReturn().getResponse();
+        assertArrayEquals(Arrays.copyOfRange(report, 4, 14), part.getContentAsByteArray());
+
+        mockMvc.perform(get(path).header(HttpHeaders.RANGE, "bytes=" + report.length + "-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable());
+        mockMvc.perform(get("/api/candidates/csv/upload/errors/..%2F..%2Fetc%2Fpasswd"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void upload_gzip_file_and_body() throws Exception {
+        String csv = "external_ref,name,age,nationality,origin,notes\n" +
+                "CND-001,Jane Smith,31,Canada,Toronto,Has management experience\n" +
+                "CND-002,John Doe,28,USA,New York,\n";
+        MockMultipartFile file = new MockMultipartFile("file", "c.csv.gz", "application/gzip", gzip(csv));
+        mockMvc.perform(multipart("/api/candidates/csv/upload").file(file))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"successCount\":2")));
+        assertEquals("Jane Smith", repo.findByExternalRef("CND-001").orElseThrow().getName());
+
+        String changed = csv.replace("John Doe", "John Roe");
+        mockMvc.perform(post("/api/candidates/csv/upload")
+                .contentType("text/csv")
+                .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .content(gzip(changed)))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"successCount\":2")))
+                .andExpect(content().string(containsString("\"unchangedCount\":1")));
+        assertEquals("John Roe", repo.findByExternalRef("CND-002").orElseThrow().getName());
+    }
+
+    @Test
+    public void upload_gzip_limit_applies_to_inflated_size() throws Exception {
+        // a few KB compressed, well over the 5MB limit once inflated
+        StringBuilder csv = new StringBuilder("external_ref,name,notes\n");
+        String notes = "x".repeat(1000);
+        for (int i = 0; i < 6000; i++)
+            csv.append("CND-").append(i).append(",Name,").append(notes).append('\n');
+        MockMultipartFile file = new MockMultipartFile("file", "c.csv.gz", "application/gzip", gzip(csv.toString()));
+        mockMvc.perform(multipart("/api/candidates/csv/upload").file(file))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(content().string(containsString("FILE_LIMIT")));
+        assertEquals(0, repo.count());
+    }
+
+    private static byte[] gzip(String s) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(s.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
 }
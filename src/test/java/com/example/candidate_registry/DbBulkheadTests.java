@@ -0,0 +1,81 @@
+package com.example.candidate_registry;
+
+import com.example.candidate_registry.config.BulkheadDataSource;
+import com.example.candidate_registry.repository.CandidateRepository;
+import com.example.candidate_registry.service.CandidateSearchIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.threads.virtual.enabled=true",
+        "app.db.bulkhead.max-concurrent=2",
+        "app.db.bulkhead.max-wait-ms=200"
+})
+public class DbBulkheadTests {
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    CandidateRepository repo;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @Autowired
+    CandidateSearchIndex index;
+
+    // waits out the startup rebuild, which holds a permit while it reads the table
+    @BeforeEach
+    public void before() {
+        index.rebuild();
+    }
+
+    @Test
+    public void connections_beyond_the_limit_wait_and_are_refused() throws Exception {
+        assertInstanceOf(BulkheadDataSource.class, dataSource);
+        double rejected = rejected();
+        try (Connection a = dataSource.getConnection(); Connection b = dataSource.getConnection()) {
+            long start = System.nanoTime();
+            assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+            assertEquals(rejected + 1, rejected());
+        }
+        assertEquals(2, ((BulkheadDataSource) dataSource).availablePermits());
+    }
+
+    @Test
+    public void many_virtual_threads_share_the_permits() throws Exception {
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Long>> counts = new ArrayList<>();
+            for (int i = 0; i < 200; i++)
+                counts.add(threads.submit(() -> repo.count()));
+            long expected = repo.count();
+            for (Future<Long> f : counts)
+                assertEquals(expected, f.get(30, TimeUnit.SECONDS));
+        }
+        assertEquals(2, ((BulkheadDataSource) dataSource).availablePermits());
+        assertTrue(registry.find("candidates.db.bulkhead.wait").tag("outcome", "acquired").timer().count() >= 200);
+    }
+
+    private double rejected() {
+        Counter c = registry.find("candidates.db.bulkhead.rejected").counter();
+        return c == null ? 0 : c.count();
+    }
+}
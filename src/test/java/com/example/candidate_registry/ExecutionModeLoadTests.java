@@ -0,0 +1,90 @@
+package com.example.candidate_registry;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares platform-thread and virtual-thread execution on the list and export endpoints.
+ * Excluded from the normal build; run with {@code mvn -Pload test}. Clients, duration and
+ * seed size: {@code -Dload.clients=200 -Dload.seconds=10 -Dload.rows=10000}. The results
+ * are printed and written to {@code target/load/execution-modes.tsv}.
+ */
+@Tag("load")
+public class ExecutionModeLoadTests {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutionModeLoadTests.class);
+
+    private static final int CLIENTS = Integer.getInteger("load.clients", 200);
+
+    private static final int SECONDS = Integer.getInteger("load.seconds", 10);
+
+    private static final int ROWS = Integer.getInteger("load.rows", 10000);
+
+    private static final Map<String, String> ENDPOINTS = Map.of(
+            "list", "/api/candidates?name=Smith&size=20",
+            "export", "/api/candidates/csv/download?nationality=Korea");
+
+    @Test
+    public void platform_and_virtual_threads() throws Exception {
+        List<LoadDriver.Stats> stats = new ArrayList<>();
+        for (boolean virtual : new boolean[] { false, true })
+            stats.addAll(run(virtual));
+
+        stats.forEach(s -> log.info("{}", s));
+        new LoadDriver.Report(LoadDriver.settings(Map.of("clients", CLIENTS, "seconds", SECONDS, "rows", ROWS)), stats)
+                .writeTo(Path.of("target", "load", "execution-modes.tsv"));
+
+        for (LoadDriver.Stats s : stats)
+            assertTrue(s.requests() > 0, s.toString());
+    }
+
+    private List<LoadDriver.Stats> run(boolean virtual) throws Exception {
+        String mode = virtual ? "virtual" : "platform";
+        try (ServletWebServerApplicationContext ctx = (ServletWebServerApplicationContext) new SpringApplicationBuilder(
+                CandidateRegistryApplication.class).properties(
+                        "server.port=0",
+                        "server.tomcat.threads.max=50",
+                        "spring.threads.virtual.enabled=" + virtual,
+                        "spring.datasource.url=jdbc:h2:mem:load-" + mode + ";MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "spring.jmx.enabled=false",
+                        "app.upload.max-rows=" + ROWS,
+                        "app.upload.max-size-bytes=104857600",
+                        "app.search.cache.enabled=false")
+                .run()) {
+            String base = "http://localhost:" + ctx.getWebServer().getPort();
+            HttpClient http = HttpClient.newHttpClient();
+            HttpResponse<String> res = http.send(HttpRequest.newBuilder(URI.create(base + "/api/candidates/csv/upload"))
+                    .header("Content-Type", "text/csv")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(
+                            SyntheticCandidates.generate(SyntheticCandidates.Spec.clean(1, ROWS, 42))))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, res.statusCode(), res.body());
+
+            List<LoadDriver.Stats> stats = new ArrayList<>();
+            for (Map.Entry<String, String> e : ENDPOINTS.entrySet()) {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(base + e.getValue())).GET().build();
+                LoadDriver driver = new LoadDriver(http,
+                        List.of(new LoadDriver.Operation(mode + "_" + e.getKey(), 1, rnd -> request)));
+                stats.addAll(driver.run(CLIENTS, Duration.ofSeconds(SECONDS), 42));
+            }
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.candidate_registry;
+
+import com.example.candidate_registry.dto.CsvUploadResult;
+import com.example.candidate_registry.repository.CandidateRepository;
+import com.example.candidate_registry.service.CandidateService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * external_ref under a case-insensitive collation, as MySQL's utf8mb4_0900_ai_ci compares
+ * it: H2's IGNORECASE makes the unique key and the lookups case-insensitive too.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:collation;MODE=MySQL;IGNORECASE=TRUE;DB_CLOSE_DELAY=-1")
+public class ExternalRefCollationTests {
+
+    @Autowired
+    CandidateService service;
+
+    @Autowired
+    CandidateRepository repo;
+
+    @BeforeEach
+    public void before() {
+        repo.deleteAll();
+    }
+
+    @Test
+    public void case_variant_of_a_stored_key_updates_it() throws Exception {
+        upload("external_ref,name,age,nationality,origin,notes\nCND-001,Jane,31,Japan,Tokyo,\n");
+
+        CsvUploadResult r = upload("external_ref,name,age,nationality,origin,notes\ncnd-001,Janet,32,Japan,Tokyo,\n");
+        assertEquals(0, r.failureCount);
+        assertEquals(1, r.successCount);
+        assertEquals(1, repo.count());
+        assertEquals("Janet", repo.findByExternalRef("CND-001").orElseThrow().getName());
+
+        // a file without every content column merges into the stored row the same way
+        r = upload("external_ref,name\nCnd-001,Jan\n");
+        assertEquals(0, r.failureCount);
+        assertEquals(32, repo.findByExternalRef("CND-001").orElseThrow().getAge());
+        assertEquals("Jan", repo.findByExternalRef("CND-001").orElseThrow().getName());
+    }
+
+    @Test
+    public void case_variants_in_one_file_are_duplicates() throws Exception {
+        CsvUploadResult r = upload("external_ref,name,age\nCND-002,Jane,31\ncnd-002,John,40\nCND-003,Ken,25\n");
+        assertEquals(2, r.failureCount);
+        assertEquals(1, r.successCount);
+        assertEquals(1, repo.count());
+    }
+
+    private CsvUploadResult upload(String csv) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "c.csv", "text/csv",
+                csv.getBytes(StandardCharsets.UTF_8));
+        return service.uploadCsv(file, "");
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.candidate_registry;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Closed-loop HTTP load against a running registry. Each client repeatedly draws an
+ * operation by weight, sends its request and records the latency; non-2xx answers and I/O
+ * failures count as errors. Clients run on virtual threads, so hundreds of them cost
+ * little on the driver side. The random choices depend only on the seed.
+ */
+public final class LoadDriver {
+
+    /** A kind of request, picked with probability {@code weight / sum of weights}. */
+    public record Operation(String name, int weight, Function<SplittableRandom, HttpRequest> request) {
+    }
+
+    /** Latencies in milliseconds; throughput in successful requests per second. */
+    public record Stats(String operation, int requests, int errors, double throughput, double p50, double p90,
+            double p95, double p99, double max) {
+    }
+
+    public record Report(Map<String, String> settings, List<Stats> stats) {
+
+        /**
+         * Writes the report as tab-separated lines, {@code #}-prefixed settings first, so
+         * that reports of two versions can be compared with diff or a spreadsheet.
+         */
+        public void writeTo(Path file) throws IOException {
+            StringBuilder sb = new StringBuilder();
+            settings.forEach((k, v) -> sb.append("# ").append(k).append('=').append(v).append('\n'));
+            sb.append(String.join("\t", "operation", "requests", "errors", "req_per_s", "p50_ms", "p90_ms",
+                    "p95_ms", "p99_ms", "max_ms")).append('\n');
+            for (Stats s : stats) {
+                sb.append(String.format("%s\t%d\t%d\t%.1f\t%.1f\t%.1f\t%.1f\t%.1f\t%.1f%n", s.operation, s.requests,
+                        s.errors, s.throughput, s.p50, s.p90, s.p95, s.p99, s.max));
+            }
+            if (file.getParent() != null)
+                Files.createDirectories(file.getParent());
+            Files.writeString(file, sb);
+        }
+    }
+
+    private final HttpClient http;
+
+    private final List<Operation> operations;
+
+    private final int totalWeight;
+
+    public LoadDriver(HttpClient http, List<Operation> operations) {
+        this.http = http;
+        this.operations = List.copyOf(operations);
+        this.totalWeight = operations.stream().mapToInt(Operation::weight).sum();
+    }
+
+    /** Runs {@code clients} clients for {@code duration} and returns one Stats per operation. */
+    public List<Stats> run(int clients, Duration duration, long seed) throws Exception {
+        List<ConcurrentLinkedQueue<Long>> latencies = new ArrayList<>();
+        List<AtomicInteger> errors = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            latencies.add(new ConcurrentLinkedQueue<>());
+            errors.add(new AtomicInteger());
+        }
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> running = new ArrayList<>();
+            SplittableRandom seeds = new SplittableRandom(seed);
+            for (int c = 0; c < clients; c++) {
+                SplittableRandom rnd = seeds.split();
+                running.add(threads.submit(() -> {
+                    while (System.nanoTime() < end) {
+                        int op = pick(rnd);
+                        HttpRequest request = operations.get(op).request().apply(rnd);
+                        long t = System.nanoTime();
+                        try {
+                            HttpResponse<Void> res = http.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (res.statusCode() / 100 == 2)
+                                latencies.get(op).add(System.nanoTime() - t);
+                            else
+                                errors.get(op).incrementAndGet();
+                        } catch (IOException ex) {
+                            errors.get(op).incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : running)
+                f.get();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        List<Stats> stats = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            long[] sorted = latencies.get(i).stream().mapToLong(Long::longValue).sorted().toArray();
+            stats.add(new Stats(operations.get(i).name(), sorted.length, errors.get(i).get(), sorted.length / elapsed,
+                    percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 95), percentile(sorted, 99),
+                    sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6));
+        }
+        return stats;
+    }
+
+    /** Settings header for a report: the given values plus run time and JVM. */
+    public static Map<String, String> settings(Map<String, ?> values) {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("started", Instant.now().toString());
+        settings.put("java", Runtime.version().toString());
+        settings.put("cpus", String.valueOf(Runtime.getRuntime().availableProcessors()));
+        values.forEach((k, v) -> settings.put(k, String.valueOf(v)));
+        return settings;
+    }
+
+    private int pick(SplittableRandom rnd) {
+        int r = rnd.nextInt(totalWeight);
+        for (int i = 0; i < operations.size(); i++) {
+            r -= operations.get(i).weight();
+            if (r < 0)
+                return i;
+        }
+        return operations.size() - 1;
+    }
+
+    // nearest-rank percentile, in milliseconds
+    static double percentile(long[] sorted, int p) {
+        if (sorted.length == 0)
+            return 0;
+        int i = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, i))] / 1e6;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.candidate_registry;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Seeds the embedded server and H2 with synthetic candidates through the upload endpoint,
+ * then runs a mixed workload: list searches with varied filters, sort columns and paging,
+ * detail lookups, facets, uploads that mostly update existing rows, and filtered exports.
+ * Run with {@code mvn -Pload test -Dtest=MixedWorkloadLoadTests}; settings:
+ * <pre>
+ * -Dload.candidates=100000  rows seeded before the run (1M, 10M work; give the JVM heap or a file DB)
+ * -Dload.clients=50 -Dload.seconds=30 -Dload.seed=42
+ * -Dload.label=local        written to the report, e.g. a version or commit
+ * -Dload.report=target/load/mixed-workload.tsv
+ * -Dload.db-url=jdbc:h2:file:./target/load/db;MODE=MySQL
+ * </pre>
+ */
+@Tag("load")
+public class MixedWorkloadLoadTests {
+
+    private static final Logger log = LoggerFactory.getLogger(MixedWorkloadLoadTests.class);
+
+    private static final long CANDIDATES = Long.getLong("load.candidates", 100_000);
+
+    private static final int CLIENTS = Integer.getInteger("load.clients", 50);
+
+    private static final int SECONDS = Integer.getInteger("load.seconds", 30);
+
+    private static final long SEED = Long.getLong("load.seed", 42);
+
+    private static final int SEED_FILE_ROWS = 10_000;
+
+    private static final int UPLOAD_ROWS = 1_000;
+
+    private static final String[] SORTS = { "external_ref", "name", "age", "nationality", "origin" };
+
+    @Test
+    public void mixed_workload() throws Exception {
+        String dbUrl = System.getProperty("load.db-url", "jdbc:h2:mem:mixed-load;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        try (ServletWebServerApplicationContext ctx = (ServletWebServerApplicationContext) new SpringApplicationBuilder(
+                CandidateRegistryApplication.class).properties(
+                        "server.port=0",
+                        "spring.datasource.url=" + dbUrl,
+                        "spring.jmx.enabled=false",
+                        "app.upload.max-rows=" + SEED_FILE_ROWS,
+                        "app.upload.max-size-bytes=52428800")
+                .run()) {
+            String base = "http://localhost:" + ctx.getWebServer().getPort();
+            HttpClient http = HttpClient.newHttpClient();
+
+            long seedStart = System.nanoTime();
+            seed(http, base);
+            double seedSeconds = (System.nanoTime() - seedStart) / 1e9;
+
+            AtomicLong nextRef = new AtomicLong(CANDIDATES + 1);
+            LoadDriver driver = new LoadDriver(http, List.of(
+                    new LoadDriver.Operation("search", 55, rnd -> get(base, "/api/candidates", searchParams(rnd))),
+                    new LoadDriver.Operation("search_keyset", 15, rnd -> {
+                        Map<String, String> params = searchParams(rnd);
+                        params.remove("page");
+                        params.put("paging", "keyset");
+                        if ("age".equals(params.get("sort")))
+                            params.put("sort", "name");
+                        return get(base, "/api/candidates", params);
+                    }),
+                    new LoadDriver.Operation("detail", 12,
+                            rnd -> get(base, "/api/candidates/CND-" + (1 + rnd.nextLong(CANDIDATES)), Map.of())),
+                    new LoadDriver.Operation("facets", 8, rnd -> get(base, "/api/candidates/facets", Map.of())),
+                    new LoadDriver.Operation("upload", 5, rnd -> {
+                        // mostly updates of seeded rows, some new rows, a few errors
+                        long first = nextRef.getAndAdd(UPLOAD_ROWS);
+                        byte[] csv = SyntheticCandidates.generate(
+                                new SyntheticCandidates.Spec(first, UPLOAD_ROWS, 0.8, 0.01, 0.02, rnd.nextLong()));
+                        return HttpRequest.newBuilder(URI.create(base + "/api/candidates/csv/upload?force=true"))
+                                .header("Content-Type", "text/csv")
+                                .POST(HttpRequest.BodyPublishers.ofByteArray(csv))
+                                .build();
+                    }),
+                    new LoadDriver.Operation("export", 5, rnd -> get(base, "/api/candidates/csv/download",
+                            Map.of("nationality", pick(rnd, "Korea", "Canada", "France", "Brazil"),
+                                    "origin", pick(rnd, "Seoul", "Toronto", "Lyon", "São Paulo"))))));
+
+            List<LoadDriver.Stats> stats = driver.run(CLIENTS, Duration.ofSeconds(SECONDS), SEED);
+
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("label", System.getProperty("load.label", "local"));
+            values.put("candidates", CANDIDATES);
+            values.put("clients", CLIENTS);
+            values.put("seconds", SECONDS);
+            values.put("seed", SEED);
+            values.put("db", dbUrl);
+            values.put("seed_rows_per_s", String.format("%.0f", CANDIDATES / seedSeconds));
+            LoadDriver.Report report = new LoadDriver.Report(LoadDriver.settings(values), stats);
+            Path out = Path.of(System.getProperty("load.report", "target/load/mixed-workload.tsv"));
+            report.writeTo(out);
+            stats.forEach(s -> log.info("{}", s));
+            log.info("report written to {}", out.toAbsolutePath());
+
+            assertTrue(stats.stream().allMatch(s -> s.requests() > 0), stats.toString());
+        }
+    }
+
+    // uploads the seed files four at a time; their external_refs are disjoint, so they run in parallel
+    private static void seed(HttpClient http, String base) throws Exception {
+        try (ExecutorService uploaders = Executors.newFixedThreadPool(4)) {
+            List<Future<?>> uploads = new ArrayList<>();
+            for (long first = 1; first <= CANDIDATES; first += SEED_FILE_ROWS) {
+                int rows = (int) Math.min(SEED_FILE_ROWS, CANDIDATES - first + 1);
+                SyntheticCandidates.Spec spec = SyntheticCandidates.Spec.clean(first, rows, SEED);
+                uploads.add(uploaders.submit(() -> {
+                    HttpResponse<String> res = http.send(
+                            HttpRequest.newBuilder(URI.create(base + "/api/candidates/csv/upload"))
+                                    .header("Content-Type", "text/csv")
+                                    .POST(HttpRequest.BodyPublishers.ofByteArray(SyntheticCandidates.generate(spec)))
+                                    .build(),
+                            HttpResponse.BodyHandlers.ofString());
+                    assertEquals(200, res.statusCode(), res.body());
+                    return null;
+                }));
+            }
+            for (Future<?> f : uploads)
+                f.get();
+        }
+    }
+
+    private static Map<String, String> searchParams(SplittableRandom rnd) {
+        Map<String, String> params = new LinkedHashMap<>();
+        if (rnd.nextInt(3) == 0)
+            params.put("name", rnd.nextBoolean()
+                    ? pick(rnd, SyntheticCandidates.FAMILY_NAMES)
+                    : pick(rnd, SyntheticCandidates.ROMAN_NAMES).split(" ")[0]);
+        if (rnd.nextInt(3) == 0)
+            params.put("nationality", pick(rnd, SyntheticCandidates.NATIONALITIES));
+        if (rnd.nextInt(4) == 0)
+            params.put("origin", pick(rnd, SyntheticCandidates.PREFECTURES));
+        params.put("sort", pick(rnd, SORTS));
+        params.put("dir", rnd.nextBoolean() ? "asc" : "desc");
+        params.put("page", String.valueOf(rnd.nextInt(5)));
+        params.put("size", pick(rnd, "10", "20", "50"));
+        return params;
+    }
+
+    private static HttpRequest get(String base, String path, Map<String, String> params) {
+        StringBuilder uri = new StringBuilder(base).append(path);
+        char sep = '?';
+        for (Map.Entry<String, String> p : params.entrySet()) {
+            uri.append(sep).append(p.getKey()).append('=')
+                    .append(URLEncoder.encode(p.getValue(), StandardCharsets.UTF_8));
+            sep = '&';
+        }
+        return HttpRequest.newBuilder(URI.create(uri.toString())).GET().build();
+    }
+
+    private static String pick(SplittableRandom rnd, String... values) {
+        return values[rnd.nextInt(values.length)];
+    }
+}
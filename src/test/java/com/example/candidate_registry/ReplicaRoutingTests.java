@@ -0,0 +1,87 @@
+package com.example.candidate_registry;
+
+import com.example.candidate_registry.repository.CandidateRepository;
+import com.example.candidate_registry.service.CandidateSearchCache;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// two embedded databases: writes go to the primary, read-only transactions to the replica
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicaRoutingTests.PRIMARY,
+        "app.datasource.replica.urls=" + ReplicaRoutingTests.REPLICA,
+        "app.datasource.replica.read-your-writes=300ms" })
+@AutoConfigureMockMvc
+public class ReplicaRoutingTests {
+
+    static final String PRIMARY = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+
+    static final String REPLICA = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    CandidateRepository repo;
+
+    @Autowired
+    CandidateSearchCache searchCache;
+
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA, "sa", ""));
+
+    @BeforeEach
+    public void before() {
+        repo.deleteAll();
+        searchCache.clear();
+        Flyway.configure().dataSource(REPLICA, "sa", "").load().migrate();
+        replica.update("DELETE FROM candidate");
+    }
+
+    @Test
+    public void reads_go_to_the_replica_after_the_read_your_writes_window() throws Exception {
+        String csv = "external_ref,name,nationality,origin\n" +
+                "CND-001,Jane Smith,Canada,Toronto\n" +
+                "CND-002,John Doe,USA,New York\n";
+        mockMvc.perform(multipart("/api/candidates/csv/upload")
+                .file(new MockMultipartFile("file", "c.csv", "text/csv", csv.getBytes())))
+                .andExpect(status().isOk());
+
+        // right after the upload reads see the primary
+        mockMvc.perform(get("/api/candidates"))
+                .andExpect(jsonPath("$.totalElements").value(2));
+        mockMvc.perform(get("/api/candidates/CND-001")).andExpect(status().isOk());
+
+        Thread.sleep(400);
+        searchCache.clear();
+        mockMvc.perform(get("/api/candidates"))
+                .andExpect(jsonPath("$.totalElements").value(0));
+        mockMvc.perform(get("/api/candidates/CND-001")).andExpect(status().isNotFound());
+
+        replica.update("INSERT INTO candidate (external_ref, name, nationality, origin)"
+                + " VALUES ('REP-001', 'Replica Only', 'Japan', 'Tokyo')");
+        searchCache.clear();
+        mockMvc.perform(get("/api/candidates"))
+                .andExpect(jsonPath("$.totalElements").value(1))
+                .andExpect(jsonPath("$.content[0].name").value("Replica Only"));
+        // writes still go to the primary
+        mockMvc.perform(multipart("/api/candidates/csv/upload")
+                .file(new MockMultipartFile("file", "c.csv", "text/csv",
+                        "external_ref,name,nationality,origin\nCND-003,Kai Lin,Japan,Osaka\n".getBytes())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.successCount").value(1));
+        assertEquals(3, new JdbcTemplate(new DriverManagerDataSource(PRIMARY, "sa", ""))
+                .queryForObject("SELECT COUNT(*) FROM candidate", Integer.class));
+    }
+}
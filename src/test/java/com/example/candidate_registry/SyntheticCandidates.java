@@ -0,0 +1,168 @@
+package com.example.candidate_registry;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic candidate CSVs for load tests. Most names are Japanese, written with a
+ * full-width space, a half-width space or none between family and given name; the rest are
+ * romanized or foreign. Nationality and origin follow a skewed distribution, so filters
+ * select very different result sizes. A share of rows can repeat an earlier external_ref of
+ * the same file (DUP_IN_FILE) or fail validation. Output depends only on the spec.
+ *
+ * <pre>
+ * java -cp target/test-classes com.example.candidate_registry.SyntheticCandidates \
+ *     out-dir total-rows [rows-per-file] [duplicate-ratio] [error-ratio] [seed]
+ * </pre>
+ */
+public final class SyntheticCandidates {
+
+    /**
+     * One file: external_refs {@code CND-<firstRef>} upwards, {@code rows} data rows.
+     * {@code updateRatio} of the rows reuse a ref below {@code firstRef} (an update of an
+     * earlier file), {@code duplicateRatio} one from earlier in this file.
+     */
+    public record Spec(long firstRef, int rows, double updateRatio, double duplicateRatio, double errorRatio,
+            long seed) {
+
+        public static Spec clean(long firstRef, int rows, long seed) {
+            return new Spec(firstRef, rows, 0, 0, 0, seed);
+        }
+    }
+
+    static final String HEADER = "external_ref,name,age,nationality,origin,notes";
+
+    static final String[] FAMILY_NAMES = { "佐藤", "鈴木", "高橋", "田中", "伊藤", "渡辺", "山本", "中村", "小林", "加藤",
+            "吉田", "山田", "佐々木", "山口", "松本", "井上", "木村", "林", "斎藤", "清水" };
+
+    private static final String[] GIVEN_NAMES = { "太郎", "花子", "翔太", "陽菜", "蓮", "結衣", "大輝", "美咲", "健", "さくら",
+            "悠真", "葵", "湊", "凛", "蒼" };
+
+    static final String[] ROMAN_NAMES = { "Taro Yamada", "Hanako Tanaka", "Jane Smith", "Jean Dupont", "Nguyễn Văn An",
+            "Kim Min-jun", "Maria Silva", "Wang Fang" };
+
+    // weighted: about 60% 日本, the rest spread with a long tail
+    static final String[] NATIONALITIES = { "日本", "日本", "日本", "日本", "日本", "日本", "Japan", "Korea", "China",
+            "Viet Nam", "Canada", "France", "Brazil", "Philippines" };
+
+    static final String[] PREFECTURES = { "東京都", "東京都", "東京都", "大阪府", "大阪府", "神奈川県", "愛知県", "福岡県", "北海道",
+            "京都府", "沖縄県" };
+
+    private static final String[] CITIES = { "Seoul", "Shanghai", "Hanoi", "Toronto", "Lyon", "São Paulo", "Manila" };
+
+    private SyntheticCandidates() {
+    }
+
+    public static void write(Spec spec, Writer out) throws IOException {
+        SplittableRandom rnd = new SplittableRandom(spec.seed() ^ spec.firstRef());
+        out.write(HEADER);
+        out.write('\n');
+        StringBuilder line = new StringBuilder(256);
+        for (int i = 0; i < spec.rows(); i++) {
+            long ref = spec.firstRef() + i;
+            double roll = rnd.nextDouble();
+            if (roll < spec.updateRatio() && spec.firstRef() > 1)
+                ref = 1 + rnd.nextLong(spec.firstRef() - 1);
+            else if (roll < spec.updateRatio() + spec.duplicateRatio() && i > 0)
+                ref = spec.firstRef() + rnd.nextInt(i);
+
+            String name = name(rnd);
+            String age = String.valueOf(18 + rnd.nextInt(50));
+            String nationality = NATIONALITIES[rnd.nextInt(NATIONALITIES.length)];
+            String origin = nationality.equals("日本") || nationality.equals("Japan")
+                    ? PREFECTURES[rnd.nextInt(PREFECTURES.length)]
+                    : CITIES[rnd.nextInt(CITIES.length)];
+            if (rnd.nextDouble() < spec.errorRatio()) {
+                switch (rnd.nextInt(4)) {
+                    case 0 -> name = "";
+                    case 1 -> age = "abc";
+                    case 2 -> age = "250";
+                    default -> name = "長".repeat(101);
+                }
+            } else if (rnd.nextInt(20) == 0) {
+                age = "";
+            }
+
+            line.setLength(0);
+            line.append("CND-").append(ref).append(',').append(name).append(',').append(age).append(',')
+                    .append(nationality).append(',').append(origin).append(',');
+            notes(rnd, i, line);
+            line.append('\n');
+            out.append(line);
+        }
+    }
+
+    public static byte[] generate(Spec spec) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(spec.rows() * 80);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8))) {
+            write(spec, out);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Writes {@code totalRows} new candidates as consecutive files of {@code rowsPerFile}. */
+    public static List<Path> writeFiles(Path dir, long totalRows, int rowsPerFile, double duplicateRatio,
+            double errorRatio, long seed) throws IOException {
+        Files.createDirectories(dir);
+        List<Path> files = new ArrayList<>();
+        for (long first = 1; first <= totalRows; first += rowsPerFile) {
+            int rows = (int) Math.min(rowsPerFile, totalRows - first + 1);
+            Path file = dir.resolve(String.format("candidates-%08d.csv", first));
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                write(new Spec(first, rows, 0, duplicateRatio, errorRatio, seed), out);
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+    private static String name(SplittableRandom rnd) {
+        if (rnd.nextInt(10) >= 7)
+            return ROMAN_NAMES[rnd.nextInt(ROMAN_NAMES.length)];
+        String family = FAMILY_NAMES[rnd.nextInt(FAMILY_NAMES.length)];
+        String given = GIVEN_NAMES[rnd.nextInt(GIVEN_NAMES.length)];
+        return switch (rnd.nextInt(5)) {
+            case 0, 1 -> family + "　" + given;
+            case 2, 3 -> family + " " + given;
+            default -> family + given;
+        };
+    }
+
+    private static void notes(SplittableRandom rnd, int i, StringBuilder line) {
+        switch (rnd.nextInt(10)) {
+            case 0, 1, 2, 3 -> {
+            }
+            case 4 -> line.append("\"経歴: ").append(i % 30).append("年, \"\"リモート可\"\"\nTOEIC ")
+                    .append(500 + rnd.nextInt(490)).append('"');
+            default -> line.append("メモ ").append(i);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: SyntheticCandidates out-dir total-rows [rows-per-file] [duplicate-ratio]"
+                    + " [error-ratio] [seed]");
+            System.exit(2);
+        }
+        Path dir = Path.of(args[0]);
+        long total = Long.parseLong(args[1]);
+        int perFile = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+        double duplicates = args.length > 3 ? Double.parseDouble(args[3]) : 0;
+        double errors = args.length > 4 ? Double.parseDouble(args[4]) : 0;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 42;
+        List<Path> files = writeFiles(dir, total, perFile, duplicates, errors, seed);
+        System.out.println(files.size() + " files written to " + dir.toAbsolutePath());
+    }
+}
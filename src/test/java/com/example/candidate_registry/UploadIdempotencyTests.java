@@ -0,0 +1,104 @@
+package com.example.candidate_registry;
+
+import com.example.candidate_registry.dto.CsvUploadResult;
+import com.example.candidate_registry.repository.CandidateRepository;
+import com.example.candidate_registry.repository.UploadReceiptRepository;
+import com.example.candidate_registry.service.CandidateService;
+import com.example.candidate_registry.service.UploadProgress;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMultipartHttpServletRequestBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// off for the other tests (see src/test/resources/config/application.properties)
+@SpringBootTest(properties = "app.upload.idempotency.enabled=true")
+@AutoConfigureMockMvc
+public class UploadIdempotencyTests {
+
+    private static final String CSV = "external_ref,name,age\n" +
+            "CND-001,Jane,31\n" +
+            "CND-002,,40\n";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    CandidateRepository repo;
+
+    @Autowired
+    UploadReceiptRepository receipts;
+
+    @Autowired
+    CandidateService service;
+
+    @BeforeEach
+    public void before() {
+        repo.deleteAll();
+        receipts.deleteAll();
+    }
+
+    @Test
+    public void identical_upload_is_replayed_with_its_error_report() throws Exception {
+        String first = upload(CSV, false);
+        assertFalse(JsonPath.<Boolean>read(first, "$.replayed"));
+        String sha = JsonPath.read(first, "$.fileSha256");
+        assertEquals(64, sha.length());
+
+        String second = upload(CSV, false);
+        assertTrue(JsonPath.<Boolean>read(second, "$.replayed"));
+        assertEquals(sha, JsonPath.read(second, "$.fileSha256"));
+        assertEquals((Integer) JsonPath.read(first, "$.successCount"), JsonPath.read(second, "$.successCount"));
+        assertEquals((String) JsonPath.read(first, "$.errorReport.downloadUrl"),
+                JsonPath.read(second, "$.errorReport.downloadUrl"));
+
+        String forced = upload(CSV, true);
+        assertFalse(JsonPath.<Boolean>read(forced, "$.replayed"));
+        assertEquals(1, (int) JsonPath.read(forced, "$.unchangedCount"));
+    }
+
+    @Test
+    public void upload_that_changes_data_invalidates_other_receipts() throws Exception {
+        upload(CSV, false);
+        upload("external_ref,name\nCND-001,Janet\n", false);
+
+        // the first file would now change CND-001 back, so it must be imported again
+        String again = upload(CSV, false);
+        assertFalse(JsonPath.<Boolean>read(again, "$.replayed"));
+        assertEquals("Jane", repo.findByExternalRef("CND-001").orElseThrow().getName());
+    }
+
+    @Test
+    public void replay_is_answered_before_any_row_is_parsed() throws Exception {
+        upload(CSV, false);
+
+        byte[] content = CSV.getBytes(StandardCharsets.UTF_8);
+        UploadProgress progress = new UploadProgress();
+        CsvUploadResult replay = service.uploadCsv(new ByteArrayInputStream(content), content.length, "", false,
+                progress);
+        assertTrue(replay.replayed);
+        assertEquals(0, progress.rowsParsed.get());
+    }
+
+    private String upload(String csv, boolean force) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "c.csv", "text/csv",
+                csv.getBytes(StandardCharsets.UTF_8));
+        MockMultipartHttpServletRequestBuilder req = multipart("/api/candidates/csv/upload").file(file);
+        if (force)
+            req.param("force", "true");
+        return mockMvc.perform(req)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+    }
+}
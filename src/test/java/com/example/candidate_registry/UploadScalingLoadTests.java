@@ -0,0 +1,138 @@
+package com.example.candidate_registry;
+
+import com.example.candidate_registry.dto.CsvUploadResult;
+import com.example.candidate_registry.service.CandidateService;
+import com.example.candidate_registry.service.UploadProgress;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Upload throughput as concurrent uploaders are added, to show what the external_ref
+ * reservation (ExternalRefLocks) costs. With {@code disjoint} keys the uploads run in
+ * parallel; with {@code overlapping} keys each file also updates rows of the files
+ * uploaded before it, so uploads serialize on the shared keys. Run with
+ * {@code mvn -Pload test -Dtest=UploadScalingLoadTests}; settings:
+ * {@code -Dload.upload-rows=5000 -Dload.files-per-uploader=4 -Dload.uploaders=1,2,4,8}.
+ * Results go to {@code target/load/upload-scaling.tsv}.
+ */
+@Tag("load")
+public class UploadScalingLoadTests {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadScalingLoadTests.class);
+
+    private static final int ROWS = Integer.getInteger("load.upload-rows", 5000);
+
+    private static final int FILES = Integer.getInteger("load.files-per-uploader", 4);
+
+    private static final String UPLOADERS = System.getProperty("load.uploaders", "1,2,4,8");
+
+    @Test
+    public void throughput_by_uploader_count() throws Exception {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.join("\t", "keys", "uploaders", "rows", "seconds", "rows_per_s", "speedup"));
+        for (String keys : new String[] { "disjoint", "overlapping" }) {
+            double single = 0;
+            for (String n : UPLOADERS.split(",")) {
+                int uploaders = Integer.parseInt(n.trim());
+                double rowsPerSecond = run(keys, uploaders);
+                if (single == 0)
+                    single = rowsPerSecond;
+                String line = String.format("%s\t%d\t%d\t%.1f\t%.0f\t%.2f", keys, uploaders,
+                        (long) uploaders * FILES * ROWS, (long) uploaders * FILES * ROWS / rowsPerSecond,
+                        rowsPerSecond, rowsPerSecond / single);
+                log.info(line);
+                lines.add(line);
+            }
+        }
+
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("upload_rows", ROWS);
+        values.put("files_per_uploader", FILES);
+        StringBuilder report = new StringBuilder();
+        LoadDriver.settings(values).forEach((k, v) -> report.append("# ").append(k).append('=').append(v).append('\n'));
+        lines.forEach(l -> report.append(l).append('\n'));
+        Path out = Path.of("target", "load", "upload-scaling.tsv");
+        Files.createDirectories(out.getParent());
+        Files.writeString(out, report);
+    }
+
+    // rows per second of all uploaders together, each uploading FILES files in turn
+    private static double run(String keys, int uploaders) throws Exception {
+        try (ConfigurableApplicationContext ctx = new SpringApplicationBuilder(CandidateRegistryApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:upload-scaling-" + keys + "-" + uploaders
+                                + ";MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "spring.jmx.enabled=false",
+                        "app.upload.max-rows=" + ROWS,
+                        "app.upload.max-size-bytes=104857600")
+                .run()) {
+            CandidateService service = ctx.getBean(CandidateService.class);
+            // the overlapping files update rows of this seed
+            byte[] seed = SyntheticCandidates.generate(SyntheticCandidates.Spec.clean(1, ROWS, 42));
+            upload(service, seed);
+
+            List<byte[]> files = new ArrayList<>();
+            for (int f = 0; f < uploaders * FILES; f++) {
+                long first = ROWS + 1 + (long) f * ROWS;
+                files.add(SyntheticCandidates.generate(keys.equals("disjoint")
+                        ? SyntheticCandidates.Spec.clean(first, ROWS, 42)
+                        : new SyntheticCandidates.Spec(first, ROWS, 0.2, 0, 0, 42)));
+            }
+
+            long start = System.nanoTime();
+            try (ExecutorService pool = Executors.newFixedThreadPool(uploaders)) {
+                List<Future<?>> running = new ArrayList<>();
+                for (int u = 0; u < uploaders; u++) {
+                    int uploader = u;
+                    running.add(pool.submit(() -> {
+                        for (int f = uploader; f < files.size(); f += uploaders)
+                            upload(service, files.get(f));
+                        return null;
+                    }));
+                }
+                for (Future<?> f : running)
+                    f.get();
+            }
+            return (double) files.size() * ROWS / ((System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    private static void upload(CandidateService service, byte[] csv) throws Exception {
+        CsvUploadResult r = service.uploadCsv(new ByteArrayInputStream(csv), csv.length, "", true,
+                new UploadProgress());
+        // the only rejections are rows whose ref the generator repeated within the file (DUP_IN_FILE)
+        assertEquals(rowsWithRepeatedRefs(csv), r.failureCount);
+    }
+
+    private static int rowsWithRepeatedRefs(byte[] csv) throws IOException {
+        Map<String, Integer> counts = new HashMap<>();
+        for (CSVRecord record : CSVFormat.DEFAULT.parse(new StringReader(new String(csv, StandardCharsets.UTF_8))))
+            counts.merge(record.get(0), 1, Integer::sum);
+        return counts.values().stream().filter(n -> n > 1).mapToInt(Integer::intValue).sum();
+    }
+}